@@ -0,0 +1,96 @@
+package com.ecommerce.gateway.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory store of cached gateway responses, bounded by entry count and total body size with
+ * least-recently-used eviction.
+ */
+@Component
+public class ResponseCache {
+
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public ResponseCache(@Value("${gateway.response-cache.max-entries:10000}") int maxEntries,
+            @Value("${gateway.response-cache.max-bytes:67108864}") long maxBytes,
+            MeterRegistry meterRegistry) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        Gauge.builder("gateway.response.cache.entries", this, ResponseCache::size)
+                .register(meterRegistry);
+        Gauge.builder("gateway.response.cache.bytes", this, ResponseCache::bytes)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the entry for the key, fresh or not; callers check freshness. A stale entry is never
+     * revalidated upstream, it is replaced once a full response for the key is stored again.
+     */
+    public synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, CachedResponse response) {
+        if (response.body().length > maxBytes) {
+            return;
+        }
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            totalBytes -= previous.body().length;
+        }
+        totalBytes += response.body().length;
+
+        Iterator<CachedResponse> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && eldest.hasNext()) {
+            totalBytes -= eldest.next().body().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes the entries whose request path starts with the prefix, or every entry for a null prefix.
+     * Returns the number removed.
+     */
+    public synchronized int purge(String pathPrefix) {
+        int removed = 0;
+        Iterator<Map.Entry<String, CachedResponse>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            CachedResponse response = iterator.next().getValue();
+            if (pathPrefix == null || response.path().startsWith(pathPrefix)) {
+                totalBytes -= response.body().length;
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return totalBytes;
+    }
+
+    public record CachedResponse(String path, int status, HttpHeaders headers, byte[] body, String etag,
+            long storedAtMillis, long expiresAtMillis) {
+
+        public boolean isFresh(long nowMillis) {
+            return nowMillis < expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.gateway.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint for the response cache: the read operation shows its size, the delete operation
+ * purges it, optionally only below a path prefix.
+ * <p>
+ * Exposed over JMX only: /actuator/** bypasses JWT authentication, so over the web anyone could purge.
+ * Each gateway replica keeps its own cache, so a purge clears only the replica it is invoked on and
+ * has to be repeated on every instance.
+ */
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheEndpoint(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return Map.of("entries", responseCache.size(), "bytes", responseCache.bytes());
+    }
+
+    @DeleteOperation
+    public Map<String, Object> purge(@Nullable String pathPrefix) {
+        return Map.of("purged", responseCache.purge(pathPrefix));
+    }
+}
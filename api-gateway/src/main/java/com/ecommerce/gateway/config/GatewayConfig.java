@@ -1,70 +1,167 @@
 package com.ecommerce.gateway.config;
 
+import com.ecommerce.gateway.filter.AdaptiveConcurrencyLimitFilter;
+import com.ecommerce.gateway.filter.HedgingFilter;
 import com.ecommerce.gateway.filter.JwtAuthenticationFilter;
+import com.ecommerce.gateway.filter.RequestCoalescingFilter;
+import com.ecommerce.gateway.filter.ResponseCacheFilter;
+import com.ecommerce.gateway.ratelimit.HierarchicalRateLimiter;
+import com.ecommerce.gateway.ratelimit.LocalTokenBucketRateLimiter;
+import com.ecommerce.gateway.ratelimit.RequestIdentity;
+import com.ecommerce.gateway.security.JwtTokenVerifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.SpringCloudCircuitBreakerFilterFactory;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.ecommerce.gateway.filter.GatewayTimingFilter.timed;
 
 @Configuration
 public class GatewayConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final AdaptiveConcurrencyLimitFilter adaptiveConcurrencyLimitFilter;
+    private final ResponseCacheFilter responseCacheFilter;
+    private final RequestCoalescingFilter requestCoalescingFilter;
+    private final HedgingFilter hedgingFilter;
+    private final SpringCloudCircuitBreakerFilterFactory circuitBreakerFilterFactory;
+    private final RequestRateLimiterGatewayFilterFactory requestRateLimiterFilterFactory;
+    private final ConfigurationService configurationService;
+    private final ObjectProvider<ReactiveStringRedisTemplate> redisTemplate;
+    private final JwtTokenVerifier jwtTokenVerifier;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+
+    // Routes limited in memory by the local token bucket instead of Redis
+    @Value("${gateway.rate-limit.local-routes:}")
+    private Set<String> localRateLimitedRoutes;
+
+    // Routes limited per user, address, route and globally, in memory
+    @Value("${gateway.rate-limit.hierarchical-routes:}")
+    private Set<String> hierarchicalRateLimitedRoutes;
+
+    // Lifetime of cached catalog responses when product-service sends no Cache-Control
+    @Value("${gateway.response-cache.product-ttl:30s}")
+    private Duration productCacheTtl;
+
+    @Value("${gateway.rate-limit.local.replenish-rate:10}")
+    private int localReplenishRate;
+
+    @Value("${gateway.rate-limit.local.burst-capacity:20}")
+    private int localBurstCapacity;
+
+    @Value("${gateway.rate-limit.local.idle-timeout:60s}")
+    private Duration localIdleTimeout;
+
+    @Value("${gateway.rate-limit.local.sync.enabled:false}")
+    private boolean localSyncEnabled;
 
-    public GatewayConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    @Value("${gateway.rate-limit.local.sync.interval:1s}")
+    private Duration localSyncInterval;
+
+    public GatewayConfig(JwtAuthenticationFilter jwtAuthenticationFilter,
+            AdaptiveConcurrencyLimitFilter adaptiveConcurrencyLimitFilter, ResponseCacheFilter responseCacheFilter,
+            RequestCoalescingFilter requestCoalescingFilter, HedgingFilter hedgingFilter,
+            SpringCloudCircuitBreakerFilterFactory circuitBreakerFilterFactory,
+            RequestRateLimiterGatewayFilterFactory requestRateLimiterFilterFactory,
+            ConfigurationService configurationService,
+            ObjectProvider<ReactiveStringRedisTemplate> redisTemplate, JwtTokenVerifier jwtTokenVerifier,
+            MeterRegistry meterRegistry, Environment environment) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.adaptiveConcurrencyLimitFilter = adaptiveConcurrencyLimitFilter;
+        this.responseCacheFilter = responseCacheFilter;
+        this.requestCoalescingFilter = requestCoalescingFilter;
+        this.hedgingFilter = hedgingFilter;
+        this.circuitBreakerFilterFactory = circuitBreakerFilterFactory;
+        this.requestRateLimiterFilterFactory = requestRateLimiterFilterFactory;
+        this.configurationService = configurationService;
+        this.redisTemplate = redisTemplate;
+        this.jwtTokenVerifier = jwtTokenVerifier;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
     }
 
     @Bean
     public RouteLocator customRouteLocator(RouteLocatorBuilder builder) {
+        GatewayFilter jwtAuthentication = timed("jwt",
+                jwtAuthenticationFilter.apply(new JwtAuthenticationFilter.Config()));
+        // Last before the upstream call, so it counts only requests that will actually be proxied
+        GatewayFilter concurrencyLimit =
+                adaptiveConcurrencyLimitFilter.apply(new AdaptiveConcurrencyLimitFilter.Config());
         return builder.routes()
                 // Auth Service Routes
                 .route("auth-service", r -> r
                         .path("/api/auth/**")
                         .filters(f -> f
                                 .stripPrefix(1)
-                                .circuitBreaker(config -> config
-                                        .setName("auth-service-cb")
-                                        .setFallbackUri("forward:/fallback/auth"))
-                                .requestRateLimiter(config -> config
-                                        .setRateLimiter(redisRateLimiter())
-                                        .setKeyResolver(userKeyResolver())))
+                                .filter(timed("circuit-breaker",
+                                        circuitBreaker("auth-service-cb", "forward:/fallback/auth")))
+                                .filter(timed("rate-limit", rateLimit("auth-service")))
+                                .filter(concurrencyLimit))
                         .uri("lb://auth-service"))
 
-                // Product Service Routes
+                // Product Service Routes. Public catalog GETs are answered from the response cache when possible,
+                // cache misses for the same resource share one upstream call, and slow single-product reads
+                // are hedged; list endpoints such as /products/all are unbounded and never buffered for hedging
                 .route("product-service", r -> r
                         .path("/api/products/**")
                         .filters(f -> f
                                 .stripPrefix(1)
-                                .circuitBreaker(config -> config
-                                        .setName("product-service-cb")
-                                        .setFallbackUri("forward:/fallback/products"))
-                                .requestRateLimiter(config -> config
-                                        .setRateLimiter(redisRateLimiter())
-                                        .setKeyResolver(userKeyResolver())))
+                                .filter(responseCacheFilter.apply(
+                                        new ResponseCacheFilter.Config().setTtl(productCacheTtl)))
+                                .filter(requestCoalescingFilter.apply(new RequestCoalescingFilter.Config()))
+                                .filter(timed("circuit-breaker",
+                                        circuitBreaker("product-service-cb", "forward:/fallback/products")))
+                                .filter(timed("rate-limit", rateLimit("product-service")))
+                                .filter(concurrencyLimit)
+                                .filter(hedgingFilter.apply(new HedgingFilter.Config()
+                                        .setPaths(List.of("/products/{id:\\d+}")))))
                         .uri("lb://product-service"))
 
+                // Order status stream (JWT Required). Long-lived, so it bypasses the circuit breaker and its time limit
+                .route("order-service-stream", r -> r
+                        .order(-1)
+                        .path("/api/orders/user/*/stream")
+                        .filters(f -> f
+                                .stripPrefix(1)
+                                .filter(jwtAuthentication)
+                                .filter(timed("rate-limit", rateLimit("order-service-stream"))))
+                        .uri("lb://order-service"))
+
                 // Order Service Routes (JWT Required)
                 .route("order-service", r -> r
                         .path("/api/orders/**")
                         .filters(f -> f
                                 .stripPrefix(1)
-                                .filter(jwtAuthenticationFilter.apply(new JwtAuthenticationFilter.Config()))
-                                .circuitBreaker(config -> config
-                                        .setName("order-service-cb")
-                                        .setFallbackUri("forward:/fallback/orders"))
-                                .requestRateLimiter(config -> config
-                                        .setRateLimiter(redisRateLimiter())
-                                        .setKeyResolver(userKeyResolver())))
+                                .filter(jwtAuthentication)
+                                .filter(timed("circuit-breaker",
+                                        circuitBreaker("order-service-cb", "forward:/fallback/orders")))
+                                .filter(timed("rate-limit", rateLimit("order-service")))
+                                .filter(concurrencyLimit))
                         .uri("lb://order-service"))
 
                 // Cart Service Routes (JWT Required)
@@ -72,13 +169,11 @@ public class GatewayConfig {
                         .path("/api/cart/**")
                         .filters(f -> f
                                 .stripPrefix(1)
-                                .filter(jwtAuthenticationFilter.apply(new JwtAuthenticationFilter.Config()))
-                                .circuitBreaker(config -> config
-                                        .setName("cart-service-cb")
-                                        .setFallbackUri("forward:/fallback/cart"))
-                                .requestRateLimiter(config -> config
-                                        .setRateLimiter(redisRateLimiter())
-                                        .setKeyResolver(userKeyResolver())))
+                                .filter(jwtAuthentication)
+                                .filter(timed("circuit-breaker",
+                                        circuitBreaker("cart-service-cb", "forward:/fallback/cart")))
+                                .filter(timed("rate-limit", rateLimit("cart-service")))
+                                .filter(concurrencyLimit))
                         .uri("lb://cart-service"))
 
                 // Payment Service Routes (JWT Required)
@@ -86,18 +181,29 @@ public class GatewayConfig {
                         .path("/api/payments/**")
                         .filters(f -> f
                                 .stripPrefix(1)
-                                .filter(jwtAuthenticationFilter.apply(new JwtAuthenticationFilter.Config()))
-                                .circuitBreaker(config -> config
-                                        .setName("payment-service-cb")
-                                        .setFallbackUri("forward:/fallback/payments"))
-                                .requestRateLimiter(config -> config
-                                        .setRateLimiter(redisRateLimiter())
-                                        .setKeyResolver(userKeyResolver())))
+                                .filter(jwtAuthentication)
+                                .filter(timed("circuit-breaker",
+                                        circuitBreaker("payment-service-cb", "forward:/fallback/payments")))
+                                .filter(timed("rate-limit", rateLimit("payment-service")))
+                                .filter(concurrencyLimit))
                         .uri("lb://payment-service"))
 
                 .build();
     }
 
+    // Built here rather than with the route DSL so they can be wrapped for stage timing
+    private GatewayFilter circuitBreaker(String name, String fallbackUri) {
+        return circuitBreakerFilterFactory.apply(config -> config
+                .setName(name)
+                .setFallbackUri(fallbackUri));
+    }
+
+    private GatewayFilter rateLimit(String routeId) {
+        return requestRateLimiterFilterFactory.apply(config -> config
+                .setRateLimiter(rateLimiterFor(routeId))
+                .setKeyResolver(keyResolverFor(routeId)));
+    }
+
     @Bean
     public Customizer<ReactiveResilience4JCircuitBreakerFactory> defaultCustomizer() {
         return factory -> factory.configureDefault(id -> new Resilience4JConfigBuilder(id)
@@ -118,23 +224,54 @@ public class GatewayConfig {
     }
 
     @Bean
+    @Primary
     public KeyResolver userKeyResolver() {
-        return exchange -> {
-            String authHeader = exchange.getRequest().getHeaders().getFirst("Authorization");
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                // Use JWT token as key for rate limiting
-                return Mono.just(authHeader.substring(7, Math.min(authHeader.length(), 50)));
-            }
-            // Fallback to IP address
-            return Mono.just(exchange.getRequest().getRemoteAddress().getAddress().getHostAddress());
-        };
+        // The verified JWT subject, falling back to the client address for anonymous requests
+        return exchange -> Mono.just(RequestIdentity.of(exchange, jwtTokenVerifier).principalKey());
     }
 
     @Bean
+    public KeyResolver layeredKeyResolver() {
+        return exchange -> Mono.just(RequestIdentity.of(exchange, jwtTokenVerifier).layeredKey());
+    }
+
+    private RateLimiter<?> rateLimiterFor(String routeId) {
+        if (hierarchicalRateLimitedRoutes.contains(routeId)) {
+            return hierarchicalRateLimiter();
+        }
+        return localRateLimitedRoutes.contains(routeId) ? localRateLimiter() : redisRateLimiter();
+    }
+
+    private KeyResolver keyResolverFor(String routeId) {
+        return hierarchicalRateLimitedRoutes.contains(routeId) ? layeredKeyResolver() : userKeyResolver();
+    }
+
+    @Bean
+    @Primary
     public org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter redisRateLimiter() {
         return new org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter(10, 20, 1);
         // 10 requests per second, burst capacity of 20, 1 token per request
     }
-}
 
+    @Bean
+    public LocalTokenBucketRateLimiter localRateLimiter() {
+        LocalTokenBucketRateLimiter.Config defaults = new LocalTokenBucketRateLimiter.Config(
+                localReplenishRate, localBurstCapacity, 1);
+        return new LocalTokenBucketRateLimiter(defaults, localIdleTimeout,
+                localSyncEnabled ? redisTemplate.getIfAvailable() : null, localSyncInterval, configurationService);
+    }
 
+    @Bean
+    public HierarchicalRateLimiter hierarchicalRateLimiter() {
+        Binder binder = Binder.get(environment);
+        String prefix = "gateway.rate-limit.hierarchical";
+        HierarchicalRateLimiter.RouteBudgets defaults = binder.bind(prefix + ".defaults",
+                HierarchicalRateLimiter.RouteBudgets.class).orElseGet(HierarchicalRateLimiter.RouteBudgets::new);
+        Map<String, HierarchicalRateLimiter.RouteBudgets> routes = binder.bind(prefix + ".routes",
+                Bindable.mapOf(String.class, HierarchicalRateLimiter.RouteBudgets.class)).orElseGet(Map::of);
+        HierarchicalRateLimiter.Budget global = binder.bind(prefix + ".global",
+                HierarchicalRateLimiter.Budget.class).orElse(null);
+        Duration idleTimeout = binder.bind(prefix + ".idle-timeout", Duration.class).orElse(Duration.ofMinutes(1));
+        return new HierarchicalRateLimiter(defaults, routes, global, idleTimeout, meterRegistry, configurationService);
+    }
+}
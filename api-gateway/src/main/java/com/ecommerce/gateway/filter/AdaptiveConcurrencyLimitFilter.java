@@ -0,0 +1,188 @@
+package com.ecommerce.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the requests in flight to each route's upstream with a limit that adapts to its latency,
+ * in the style of the gradient algorithm: the limit grows while observed latency stays near the
+ * route's learned no-load baseline, and shrinks in proportion as latency rises above it. Requests
+ * over the limit are answered at once with 503 instead of queueing on a slow upstream.
+ */
+@Component
+public class AdaptiveConcurrencyLimitFilter
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyLimitFilter.Config> {
+
+    private final Map<String, GradientLimit> limits = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    public AdaptiveConcurrencyLimitFilter(MeterRegistry meterRegistry,
+            @Value("${gateway.concurrency-limit.initial-limit:50}") int initialLimit,
+            @Value("${gateway.concurrency-limit.min-limit:5}") int minLimit,
+            @Value("${gateway.concurrency-limit.max-limit:500}") int maxLimit,
+            @Value("${gateway.concurrency-limit.tolerance:2.0}") double tolerance) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            String routeId = route != null ? route.getId() : "none";
+            GradientLimit limit = limits.computeIfAbsent(routeId, this::newLimit);
+
+            if (!limit.tryAcquire()) {
+                limit.rejected.increment();
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set("Retry-After", "1");
+                return response.setComplete();
+            }
+
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .doFinally(signal -> {
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        // Fast failures say nothing about how loaded the upstream is; a cancellation, usually the
+                        // circuit breaker's time limit, is sampled with the time waited so far
+                        boolean sample = signal == SignalType.CANCEL || (signal == SignalType.ON_COMPLETE
+                                && status != null && !status.is5xxServerError());
+                        limit.release(sample ? System.nanoTime() - start : -1);
+                    });
+        };
+    }
+
+    private GradientLimit newLimit(String routeId) {
+        GradientLimit limit = new GradientLimit(initialLimit, minLimit, maxLimit, tolerance);
+        Gauge.builder("gateway.concurrency.limit", limit, GradientLimit::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        Gauge.builder("gateway.concurrency.in-flight", limit, GradientLimit::getInFlight)
+                .tag("route", routeId)
+                .register(meterRegistry);
+        limit.rejected = Counter.builder("gateway.concurrency.rejected")
+                .description("Requests shed because the route was at its concurrency limit")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        return limit;
+    }
+
+    /**
+     * Gradient limit. A slowly moving average of latency tracks the no-load baseline, drifting up
+     * only gently so sustained overload is not mistaken for the new normal; a fast moving average
+     * tracks current latency. Each sample sets the limit to limit * gradient + queue allowance,
+     * where gradient = baseline / current, clamped to [0.5, 1], and smoothed.
+     */
+    static final class GradientLimit {
+        private static final double SHORT_SMOOTHING = 0.1;
+        private static final double LONG_SMOOTHING = 0.005;
+        private static final double LIMIT_SMOOTHING = 0.2;
+
+        private final int minLimit;
+        private final int maxLimit;
+        private final double tolerance;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Counter rejected;
+
+        // Guarded by this
+        private double limit;
+        private double shortRtt;
+        private double longRtt;
+
+        private volatile int currentLimit;
+
+        GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.tolerance = tolerance;
+            this.limit = initialLimit;
+            this.currentLimit = initialLimit;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= currentLimit) {
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @param rttNanos the request's latency, or a negative value if it should not be sampled
+         */
+        void release(long rttNanos) {
+            int inFlightAtRelease = inFlight.getAndDecrement();
+            if (rttNanos >= 0) {
+                update(rttNanos, inFlightAtRelease);
+            }
+        }
+
+        private synchronized void update(long rttNanos, int inFlightAtRelease) {
+            double rtt = rttNanos;
+            if (longRtt == 0) {
+                shortRtt = rtt;
+                longRtt = rtt;
+            } else {
+                shortRtt += (rtt - shortRtt) * SHORT_SMOOTHING;
+                longRtt += (rtt - longRtt) * LONG_SMOOTHING;
+            }
+            // Let the baseline fall back quickly once latency recovers
+            if (longRtt / shortRtt > tolerance) {
+                longRtt *= 0.95;
+            }
+
+            // Only grow when the limit is actually being used, or an idle route would drift up to the maximum
+            if (inFlightAtRelease < limit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            double queueSize = Math.sqrt(limit);
+            double target = limit * gradient + queueSize;
+            limit = limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, limit));
+            currentLimit = (int) limit;
+        }
+
+        int getLimit() {
+            return currentLimit;
+        }
+
+        int getInFlight() {
+            return inFlight.get();
+        }
+    }
+
+    public static class Config {
+        // Configuration properties can be added here if needed
+    }
+}
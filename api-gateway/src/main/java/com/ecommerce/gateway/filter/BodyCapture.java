@@ -0,0 +1,74 @@
+package com.ecommerce.gateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Holds on to a response body on its way to the client, up to a size limit, for filters that keep a
+ * copy of small responses. Memory stays bounded even when the upstream sends no Content-Length.
+ */
+final class BodyCapture {
+
+    private BodyCapture() {
+    }
+
+    /**
+     * Returns the body to write. A body that ends within maxBytes is passed to onCaptured and written as
+     * one buffer. Once a body goes past maxBytes, onOverflow runs and the body streams on, starting with
+     * the part held so far.
+     */
+    static Flux<DataBuffer> capture(Publisher<? extends DataBuffer> body, long maxBytes,
+            DataBufferFactory bufferFactory, Consumer<byte[]> onCaptured, Runnable onOverflow) {
+        return Flux.defer(() -> {
+            List<DataBuffer> held = new ArrayList<>();
+            long[] heldBytes = {0};
+            boolean[] streaming = {false};
+            return Flux.<DataBuffer>from(body)
+                    .concatMap(buffer -> {
+                        if (streaming[0]) {
+                            return Flux.just(buffer);
+                        }
+                        held.add(buffer);
+                        heldBytes[0] += buffer.readableByteCount();
+                        if (heldBytes[0] <= maxBytes) {
+                            return Flux.empty();
+                        }
+                        streaming[0] = true;
+                        onOverflow.run();
+                        List<DataBuffer> flushed = new ArrayList<>(held);
+                        held.clear();
+                        return Flux.fromIterable(flushed);
+                    })
+                    .concatWith(Mono.fromSupplier(() -> {
+                        if (streaming[0]) {
+                            return null;
+                        }
+                        byte[] bytes = new byte[(int) heldBytes[0]];
+                        int offset = 0;
+                        for (DataBuffer buffer : held) {
+                            int length = buffer.readableByteCount();
+                            buffer.read(bytes, offset, length);
+                            offset += length;
+                            DataBufferUtils.release(buffer);
+                        }
+                        held.clear();
+                        onCaptured.accept(bytes);
+                        return bufferFactory.wrap(bytes);
+                    }))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    // Errors and cancellation leave buffers held that were never written
+                    .doFinally(signal -> {
+                        held.forEach(DataBufferUtils::release);
+                        held.clear();
+                    });
+        });
+    }
+}
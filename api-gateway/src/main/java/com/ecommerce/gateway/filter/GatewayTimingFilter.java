@@ -0,0 +1,151 @@
+package com.ecommerce.gateway.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Records how long each request spends in the gateway as a whole and in its main stages (JWT
+ * verification, rate limiting, circuit breaker, upstream), as gateway.stage.duration timers with
+ * percentile histograms, tagged by route, status and stage. Stages are timed by wrapping their
+ * filters with {@link #timed}; the upstream stage runs from just before the proxied call until the
+ * response headers arrive.
+ *
+ * Requests sending X-Server-Timing: true get the same breakdown in a Server-Timing response header.
+ */
+@Component
+public class GatewayTimingFilter implements GlobalFilter, Ordered {
+
+    public static final String SERVER_TIMING_REQUEST_HEADER = "X-Server-Timing";
+
+    private static final String TIMINGS_ATTRIBUTE = GatewayTimingFilter.class.getName() + ".timings";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean alwaysSendHeader;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public GatewayTimingFilter(MeterRegistry meterRegistry,
+            @Value("${gateway.timing.always-send-server-timing:false}") boolean alwaysSendHeader) {
+        this.meterRegistry = meterRegistry;
+        this.alwaysSendHeader = alwaysSendHeader;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        StageTimings timings = new StageTimings(System.nanoTime());
+        exchange.getAttributes().put(TIMINGS_ATTRIBUTE, timings);
+
+        if (alwaysSendHeader
+                || "true".equalsIgnoreCase(exchange.getRequest().getHeaders().getFirst(SERVER_TIMING_REQUEST_HEADER))) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.beforeCommit(() -> {
+                response.getHeaders().add("Server-Timing", timings.toServerTiming(System.nanoTime()));
+                return Mono.empty();
+            });
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> record(exchange, timings, System.nanoTime()));
+    }
+
+    /**
+     * Wraps a filter so the time spent in it, excluding the filters and upstream call it hands the
+     * request on to, is recorded as the given stage.
+     */
+    public static GatewayFilter timed(String stage, GatewayFilter delegate) {
+        return (exchange, chain) -> {
+            long start = System.nanoTime();
+            long[] innerNanos = new long[1];
+            GatewayFilterChain timedChain = forwarded -> {
+                long innerStart = System.nanoTime();
+                return chain.filter(forwarded)
+                        .doOnTerminate(() -> innerNanos[0] = System.nanoTime() - innerStart)
+                        .doOnCancel(() -> innerNanos[0] = System.nanoTime() - innerStart);
+            };
+            // doOnTerminate rather than doFinally, so the stage is in before the outer filter records
+            return delegate.filter(exchange, timedChain)
+                    .doOnTerminate(() -> addStage(exchange, stage, System.nanoTime() - start - innerNanos[0]))
+                    .doOnCancel(() -> addStage(exchange, stage, System.nanoTime() - start - innerNanos[0]));
+        };
+    }
+
+    static void addStage(ServerWebExchange exchange, String stage, long nanos) {
+        StageTimings timings = exchange.getAttribute(TIMINGS_ATTRIBUTE);
+        if (timings != null) {
+            timings.add(stage, nanos);
+        }
+    }
+
+    private void record(ServerWebExchange exchange, StageTimings timings, long end) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "none";
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        String status = statusCode != null ? String.valueOf(statusCode.value()) : "none";
+
+        timer("total", routeId, status).record(end - timings.startNanos, TimeUnit.NANOSECONDS);
+        timings.forEach((stage, nanos) -> timer(stage, routeId, status).record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    private Timer timer(String stage, String routeId, String status) {
+        return timers.computeIfAbsent(stage + '|' + routeId + '|' + status, key -> Timer
+                .builder("gateway.stage.duration")
+                .description("Time spent per gateway stage")
+                .tag("stage", stage)
+                .tag("route", routeId)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry));
+    }
+
+    private static final class StageTimings {
+        private final long startNanos;
+        private final Map<String, Long> stages = new LinkedHashMap<>(8);
+
+        private StageTimings(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        private synchronized void add(String stage, long nanos) {
+            stages.merge(stage, nanos, Long::sum);
+        }
+
+        private synchronized void forEach(BiConsumer<String, Long> action) {
+            stages.forEach(action);
+        }
+
+        private synchronized String toServerTiming(long now) {
+            StringBuilder header = new StringBuilder(96);
+            header.append("gateway;dur=").append(millis(now - startNanos));
+            stages.forEach((stage, nanos) -> header.append(", ").append(stage).append(";dur=").append(millis(nanos)));
+            return header.toString();
+        }
+
+        private static String millis(long nanos) {
+            return String.valueOf(Math.round(nanos / 10_000d) / 100d);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.ecommerce.gateway.filter;
+
+import com.ecommerce.gateway.loadbalancer.ExcludingRequestContext;
+import com.ecommerce.gateway.loadbalancer.InstanceLoadTracker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedges idempotent GETs: the request goes to the instance the load balancer chose, and if it has
+ * not answered within the route's latency percentile, the same request is sent to a different
+ * instance and whichever answers first is used, the other being cancelled. A primary that fails
+ * or answers 5xx before then is retried on another instance straight away.
+ * <p>
+ * The second instance is chosen by the service's own load balancer, excluding the primary, and
+ * both requests are reported to the load balancer lifecycle with their own outcome, so that each
+ * instance is credited with the latency it actually showed rather than that of the pair.
+ *
+ * Extra requests are paid for from a budget shared by all routes, filled by a fixed share of every
+ * hedged route's requests, so hedging can add at most that share of load even when every instance
+ * is slow. Responses are buffered in full, so only paths with bounded response bodies are hedged: those
+ * matching the Config's path patterns, matched after any prefix has been stripped. Other requests are
+ * routed as usual.
+ */
+@Component
+public class HedgingFilter extends AbstractGatewayFilterFactory<HedgingFilter.Config> {
+
+    private static final long TOKEN = 1000;
+
+    // Tries at another instance for balancers that do not honour ExcludingRequestContext
+    private static final int CHOOSE_ATTEMPTS = 3;
+
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final AtomicLong budget = new AtomicLong();
+    private final LoadBalancerClientFactory loadBalancerClientFactory;
+    private final InstanceLoadTracker loadTracker;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+    private final WebClient webClient;
+    private final long depositPerRequest;
+    private final long maxBudget;
+    private final Counter hedged;
+    private final Counter won;
+    private final Counter cancelled;
+    private final Counter budgetExhausted;
+
+    public HedgingFilter(LoadBalancerClientFactory loadBalancerClientFactory, InstanceLoadTracker loadTracker,
+            ObjectProvider<List<HttpHeadersFilter>> headersFilters, HttpClient httpClient,
+            MeterRegistry meterRegistry,
+            @Value("${gateway.hedging.budget-ratio:0.1}") double budgetRatio,
+            @Value("${gateway.hedging.max-budget:100}") int maxBudget,
+            @Value("${gateway.hedging.max-body-bytes:4194304}") int maxBodyBytes) {
+        super(Config.class);
+        this.loadBalancerClientFactory = loadBalancerClientFactory;
+        this.loadTracker = loadTracker;
+        this.headersFilters = headersFilters;
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxBodyBytes))
+                .build();
+        this.depositPerRequest = Math.round(budgetRatio * TOKEN);
+        this.maxBudget = maxBudget * TOKEN;
+        this.hedged = Counter.builder("gateway.hedging.requests").tag("outcome", "hedged")
+                .description("Second requests sent because the first was slow or failed")
+                .register(meterRegistry);
+        this.won = Counter.builder("gateway.hedging.requests").tag("outcome", "won")
+                .description("Hedged requests whose second request answered first")
+                .register(meterRegistry);
+        this.cancelled = Counter.builder("gateway.hedging.requests").tag("outcome", "cancelled")
+                .description("Requests cancelled because the other request of their pair answered first")
+                .register(meterRegistry);
+        this.budgetExhausted = Counter.builder("gateway.hedging.requests").tag("outcome", "budget-exhausted")
+                .description("Second requests not sent because the hedging budget was spent")
+                .register(meterRegistry);
+        Gauge.builder("gateway.hedging.budget", budget, tokens -> (double) tokens.get() / TOKEN)
+                .description("Second requests that may currently be sent")
+                .register(meterRegistry);
+    }
+
+    // Runs after the load balancer has picked the primary instance and in place of NettyRoutingFilter
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            URI primaryUri = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+            Response<ServiceInstance> primary =
+                    exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (method != HttpMethod.GET && method != HttpMethod.HEAD || primaryUri == null || primary == null
+                    || !primary.hasServer() || ServerWebExchangeUtils.isAlreadyRouted(exchange)
+                    || !config.matches(exchange.getRequest().getPath().pathWithinApplication())) {
+                return chain.filter(exchange);
+            }
+            ServerWebExchangeUtils.setAlreadyRouted(exchange);
+            deposit();
+            // The load balancer filter would credit the primary with the pair's outcome, so it is reported here
+            loadTracker.detach(primary);
+
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            LatencyWindow window = windows.computeIfAbsent(route != null ? route.getId() : "none",
+                    id -> new LatencyWindow(config.getWindowSize()));
+            // Stands in for UpstreamTimingFilter, which is skipped along with NettyRoutingFilter
+            long start = System.nanoTime();
+            return hedge(exchange, primary.getServer(), primaryUri, window, config)
+                    .doOnTerminate(() -> GatewayTimingFilter.addStage(exchange, "upstream", System.nanoTime() - start))
+                    .doOnCancel(() -> GatewayTimingFilter.addStage(exchange, "upstream", System.nanoTime() - start))
+                    .flatMap(response -> write(exchange, response))
+                    // The load balancer filter completes its lifecycle only on success or error
+                    .doOnCancel(() -> loadTracker.release(primary));
+        }, ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Mono<ResponseEntity<byte[]>> hedge(ServerWebExchange exchange, ServiceInstance primary, URI primaryUri,
+            LatencyWindow window, Config config) {
+        HttpHeaders headers = requestHeaders(exchange);
+        AtomicReference<ResponseEntity<byte[]>> lastFailure = new AtomicReference<>();
+        AtomicBoolean hedgeSent = new AtomicBoolean();
+        Sinks.Empty<Void> primaryFailed = Sinks.empty();
+
+        Request<RequestDataContext> primaryRequest =
+                new DefaultRequest<>(new RequestDataContext(new RequestData(exchange.getRequest())));
+        Mono<ResponseEntity<byte[]>> first = reported(call(exchange, primaryUri, headers, window, lastFailure),
+                Set.<LoadBalancerLifecycle>of(loadTracker), primaryRequest, new DefaultResponse(primary), false)
+                .doOnError(e -> primaryFailed.tryEmitEmpty());
+
+        long delay = window.percentile(config.getPercentile(), config.getMinSamples());
+        Mono<Void> trigger = delay < 0
+                ? primaryFailed.asMono()
+                : Mono.firstWithSignal(Mono.delay(Duration.ofNanos(Math.max(delay, config.getMinDelay().toNanos())))
+                        .then(), primaryFailed.asMono());
+        Request<RequestDataContext> hedgeRequest =
+                new DefaultRequest<>(new ExcludingRequestContext(new RequestData(exchange.getRequest()), primary));
+        Mono<ResponseEntity<byte[]>> second = trigger
+                .then(Mono.defer(() -> otherInstance(hedgeRequest, primary)))
+                .flatMap(other -> {
+                    if (!withdraw()) {
+                        budgetExhausted.increment();
+                        return Mono.empty();
+                    }
+                    hedgeSent.set(true);
+                    hedged.increment();
+                    URI uri = LoadBalancerUriTools.reconstructURI(other.getServer(), primaryUri);
+                    return reported(call(exchange, uri, headers, window, lastFailure),
+                            lifecycles(primary.getServiceId()), hedgeRequest, other, true)
+                            .doOnSuccess(response -> won.increment());
+                });
+
+        return Mono.firstWithValue(first, second)
+                .onErrorResume(e -> lastFailure.get() != null ? Mono.just(lastFailure.get()) : Mono.error(e));
+    }
+
+    private Mono<ResponseEntity<byte[]>> call(ServerWebExchange exchange, URI uri, HttpHeaders headers,
+            LatencyWindow window, AtomicReference<ResponseEntity<byte[]>> lastFailure) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.method(exchange.getRequest().getMethod())
+                    .uri(uri)
+                    .headers(target -> target.putAll(headers))
+                    .exchangeToMono(response -> response.toEntity(byte[].class))
+                    .flatMap(response -> {
+                        // A 5xx loses the race, but is still answered if the other request fails too
+                        if (response.getStatusCode().is5xxServerError()) {
+                            lastFailure.set(response);
+                            return Mono.error(
+                                    new IllegalStateException("Upstream answered " + response.getStatusCode()));
+                        }
+                        window.record(System.nanoTime() - start);
+                        return Mono.just(response);
+                    })
+                    .doOnCancel(cancelled::increment);
+        });
+    }
+
+    // Asks the service's own balancer, so the second request goes where instance load and latency say
+    private Mono<Response<ServiceInstance>> otherInstance(Request<RequestDataContext> request,
+            ServiceInstance primary) {
+        ReactorServiceInstanceLoadBalancer loadBalancer = loadBalancerClientFactory
+                .getInstance(primary.getServiceId(), ReactorServiceInstanceLoadBalancer.class);
+        if (loadBalancer == null) {
+            return Mono.empty();
+        }
+        ExcludingRequestContext context = (ExcludingRequestContext) request.getContext();
+        return Flux.range(0, CHOOSE_ATTEMPTS)
+                .concatMap(attempt -> loadBalancer.choose(request))
+                .filter(response -> response.hasServer() && !context.excludes(response.getServer()))
+                .next();
+    }
+
+    @SuppressWarnings("rawtypes")
+    private Set<LoadBalancerLifecycle> lifecycles(String serviceId) {
+        return LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                loadBalancerClientFactory.getInstances(serviceId, LoadBalancerLifecycle.class),
+                RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+    }
+
+    /**
+     * Reports one request of the pair to the load balancer lifecycle. A request cancelled because the
+     * other answered first is reported with the time it had waited, a lower bound on its latency. The
+     * primary was already started when the load balancer filter chose it, so only its clock starts here.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Mono<ResponseEntity<byte[]>> reported(Mono<ResponseEntity<byte[]>> call,
+            Set<LoadBalancerLifecycle> lifecycles, Request<RequestDataContext> request,
+            Response<ServiceInstance> lbResponse, boolean start) {
+        return Mono.defer(() -> {
+            if (start) {
+                lifecycles.forEach(lifecycle -> lifecycle.onStartRequest(request, lbResponse));
+            } else {
+                request.getContext().setRequestStartTime(System.nanoTime());
+            }
+            return call
+                    .doOnSuccess(response -> {
+                        ResponseData data = new ResponseData(response.getStatusCode(), response.getHeaders(),
+                                new LinkedMultiValueMap<>(), request.getContext().getClientRequest());
+                        CompletionContext completion =
+                                new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse, data);
+                        lifecycles.forEach(lifecycle -> lifecycle.onComplete(completion));
+                    })
+                    .doOnError(e -> {
+                        CompletionContext completion =
+                                new CompletionContext<>(CompletionContext.Status.FAILED, e, request, lbResponse);
+                        lifecycles.forEach(lifecycle -> lifecycle.onComplete(completion));
+                    })
+                    .doOnCancel(() -> {
+                        CompletionContext completion =
+                                new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse);
+                        lifecycles.forEach(lifecycle -> lifecycle.onComplete(completion));
+                    });
+        });
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, ResponseEntity<byte[]> upstream) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(upstream.getStatusCode());
+        response.getHeaders().putAll(HttpHeadersFilter.filter(headersFilters.getIfAvailable(), upstream.getHeaders(),
+                exchange, HttpHeadersFilter.Type.RESPONSE));
+        byte[] body = upstream.getBody();
+        if (body == null || exchange.getRequest().getMethod() == HttpMethod.HEAD) {
+            return response.setComplete();
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    private HttpHeaders requestHeaders(ServerWebExchange exchange) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange));
+        headers.remove(HttpHeaders.HOST);
+        return headers;
+    }
+
+    private void deposit() {
+        budget.updateAndGet(tokens -> Math.min(maxBudget, tokens + depositPerRequest));
+    }
+
+    private boolean withdraw() {
+        long tokens;
+        do {
+            tokens = budget.get();
+            if (tokens < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(tokens, tokens - TOKEN));
+        return true;
+    }
+
+    /**
+     * The most recent latencies of a route's successful requests, with their percentile recomputed at
+     * most once a second.
+     */
+    private static final class LatencyWindow {
+        private static final long RECOMPUTE_NANOS = 1_000_000_000L;
+
+        private final long[] samples;
+        private int next;
+        private int count;
+        private long percentileNanos = -1;
+        private long computedAt;
+
+        private LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        private synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        // Negative until enough requests have been seen to tell what slow means for the route
+        private synchronized long percentile(double percentile, int minSamples) {
+            if (count < minSamples) {
+                return -1;
+            }
+            long now = System.nanoTime();
+            if (percentileNanos < 0 || now - computedAt > RECOMPUTE_NANOS) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                percentileNanos = sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+                computedAt = now;
+            }
+            return percentileNanos;
+        }
+    }
+
+    public static class Config {
+        // Paths with bounded responses; nothing is hedged until some are set
+        private List<PathPattern> paths = List.of();
+        // Latency percentile of the route after which a second request is sent
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(20);
+        private int minSamples = 100;
+        private int windowSize = 1000;
+
+        public Config setPaths(List<String> paths) {
+            this.paths = paths.stream().map(PathPatternParser.defaultInstance::parse).toList();
+            return this;
+        }
+
+        public boolean matches(PathContainer path) {
+            return paths.stream().anyMatch(pattern -> pattern.matches(path));
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public Config setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public Config setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public Config setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public Config setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+            return this;
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package com.ecommerce.gateway.filter;
 
+import com.ecommerce.gateway.security.JwtTokenVerifier;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.http.HttpHeaders;
@@ -16,19 +14,21 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.security.Key;
-import java.util.Base64;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAuthenticationFilter.Config> {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
-    @Value("${JWT_SECRET:mySecretKey123456789012345678901234567890123456789012345678901234567890}")
-    private String jwtSecret;
+    // Exchange attribute holding the verified token's subject, for filters further down the chain
+    public static final String SUBJECT_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".subject";
 
-    public JwtAuthenticationFilter() {
+    private final JwtTokenVerifier jwtTokenVerifier;
+
+    public JwtAuthenticationFilter(JwtTokenVerifier jwtTokenVerifier) {
         super(Config.class);
+        this.jwtTokenVerifier = jwtTokenVerifier;
     }
 
     @Override
@@ -46,7 +46,11 @@ public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAut
             }
 
             try {
-                if (isJwtValid(token)) {
+                Optional<Claims> claims = jwtTokenVerifier.verify(token);
+                if (claims.isPresent()) {
+                    if (claims.get().getSubject() != null) {
+                        exchange.getAttributes().put(SUBJECT_ATTRIBUTE, claims.get().getSubject());
+                    }
                     return chain.filter(exchange);
                 } else {
                     return onError(exchange, "JWT token is not valid", HttpStatus.UNAUTHORIZED);
@@ -58,27 +62,6 @@ public class JwtAuthenticationFilter extends AbstractGatewayFilterFactory<JwtAut
         });
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
-
-    private boolean isJwtValid(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            logger.info("JWT token validated for user: {}", claims.getSubject());
-            return true;
-        } catch (Exception e) {
-            logger.error("JWT validation failed: {}", e.getMessage());
-            return false;
-        }
-    }
-
     private Mono<Void> onError(ServerWebExchange exchange, String err, HttpStatus httpStatus) {
         ServerHttpResponse response = exchange.getResponse();
         response.setStatusCode(httpStatus);
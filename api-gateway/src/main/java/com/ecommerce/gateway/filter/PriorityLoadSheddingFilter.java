@@ -0,0 +1,285 @@
+package com.ecommerce.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.concurrent.EventExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpResources;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds load by priority when the gateway is overloaded. Overload is measured as a pressure, the
+ * highest of event-loop lag, requests in flight and the moving average of response latency, each
+ * relative to its threshold. Each priority class is admitted until the pressure reaches its own
+ * shedding point, so background and browsing traffic are turned away well before checkout is.
+ *
+ * Latency is averaged over each probe interval and folded into a time-decayed average, so it keeps
+ * falling while nothing completes, and a single sample counts for at most twice the latency limit.
+ * Long-lived streams are admitted by priority like any request, but count neither towards requests
+ * in flight nor towards latency, since they stay open for as long as the client listens.
+ *
+ * Runs as a WebFilter so it also covers actuator and API docs traffic, which bypasses the gateway
+ * routes. Health and metrics scrapes are always admitted.
+ */
+@Component
+public class PriorityLoadSheddingFilter implements WebFilter, Ordered {
+
+    public enum Priority {
+        CRITICAL, NORMAL, LOW, BACKGROUND
+    }
+
+    private static final List<String> ALWAYS_ADMITTED = List.of("/actuator/health", "/actuator/prometheus");
+
+    // Cap on a single latency sample, as a multiple of the latency limit
+    private static final double MAX_LATENCY_SAMPLE = 2.0;
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder latencySumNanos = new LongAdder();
+    private final LongAdder latencyCount = new LongAdder();
+    private final Map<Priority, Counter> admitted = new EnumMap<>(Priority.class);
+    private final Map<Priority, Counter> shed = new EnumMap<>(Priority.class);
+    private final Map<Priority, Double> shedAt = new EnumMap<>(Priority.class);
+
+    @Value("${gateway.load-shedding.enabled:true}")
+    private boolean enabled;
+
+    @Value("${gateway.load-shedding.critical-paths:/api/orders,/api/payments}")
+    private List<String> criticalPaths;
+
+    @Value("${gateway.load-shedding.low-paths:/api/products}")
+    private List<String> lowPaths;
+
+    @Value("${gateway.load-shedding.background-paths:/actuator,/swagger-ui,/v3/api-docs,/webjars}")
+    private List<String> backgroundPaths;
+
+    @Value("${gateway.load-shedding.stream-paths:/api/orders/user/*/stream}")
+    private List<String> streamPaths;
+
+    @Value("${gateway.load-shedding.max-event-loop-lag:50ms}")
+    private Duration maxEventLoopLag;
+
+    @Value("${gateway.load-shedding.max-in-flight:2000}")
+    private int maxInFlight;
+
+    @Value("${gateway.load-shedding.max-latency:1500ms}")
+    private Duration maxLatency;
+
+    @Value("${gateway.load-shedding.latency-decay:5s}")
+    private Duration latencyDecay;
+
+    @Value("${gateway.load-shedding.probe-interval:100ms}")
+    private Duration probeInterval;
+
+    @Value("${gateway.load-shedding.shed-at.critical:1.5}")
+    private double criticalShedAt;
+
+    @Value("${gateway.load-shedding.shed-at.normal:1.0}")
+    private double normalShedAt;
+
+    @Value("${gateway.load-shedding.shed-at.low:0.8}")
+    private double lowShedAt;
+
+    @Value("${gateway.load-shedding.shed-at.background:0.6}")
+    private double backgroundShedAt;
+
+    private final List<PathPattern> streamPatterns = new ArrayList<>();
+    private final List<EventLoopProbe> probes = new ArrayList<>();
+    private ScheduledExecutorService prober;
+    private long maxLatencySampleNanos;
+    private double latencySmoothing;
+
+    private volatile long eventLoopLagNanos;
+    private volatile double latencyEwmaNanos;
+
+    public PriorityLoadSheddingFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        shedAt.put(Priority.CRITICAL, criticalShedAt);
+        shedAt.put(Priority.NORMAL, normalShedAt);
+        shedAt.put(Priority.LOW, lowShedAt);
+        shedAt.put(Priority.BACKGROUND, backgroundShedAt);
+        for (String streamPath : streamPaths) {
+            streamPatterns.add(PathPatternParser.defaultInstance.parse(streamPath));
+        }
+        maxLatencySampleNanos = (long) (maxLatency.toNanos() * MAX_LATENCY_SAMPLE);
+        // Weight of one probe interval's average, so older intervals fade with the configured decay
+        latencySmoothing = 1 - Math.exp(-(double) probeInterval.toNanos() / latencyDecay.toNanos());
+        for (Priority priority : Priority.values()) {
+            String name = priority.name().toLowerCase();
+            admitted.put(priority, Counter.builder("gateway.load-shedding.requests")
+                    .tag("priority", name).tag("outcome", "admitted").register(meterRegistry));
+            shed.put(priority, Counter.builder("gateway.load-shedding.requests")
+                    .tag("priority", name).tag("outcome", "shed").register(meterRegistry));
+        }
+        Gauge.builder("gateway.load-shedding.pressure", this, PriorityLoadSheddingFilter::pressure)
+                .description("Highest of event-loop lag, in-flight requests and latency relative to their limits")
+                .register(meterRegistry);
+        Gauge.builder("gateway.event-loop.lag", this, filter -> filter.eventLoopLagNanos / 1_000_000_000d)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("gateway.requests.in-flight", inFlight, AtomicInteger::get)
+                .register(meterRegistry);
+
+        for (EventExecutor executor : HttpResources.get().onServer(true)) {
+            probes.add(new EventLoopProbe(executor));
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-loop-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleAtFixedRate(this::sample, probeInterval.toMillis(), probeInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        prober.shutdownNow();
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!enabled || ALWAYS_ADMITTED.stream().anyMatch(path::startsWith)) {
+            return chain.filter(exchange);
+        }
+
+        Priority priority = priorityOf(path);
+        if (pressure() >= shedAt.get(priority)) {
+            shed.get(priority).increment();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set("Retry-After", "2");
+            return response.setComplete();
+        }
+
+        admitted.get(priority).increment();
+        if (isStream(exchange)) {
+            return chain.filter(exchange);
+        }
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    inFlight.decrementAndGet();
+                    latencySumNanos.add(Math.min(System.nanoTime() - start, maxLatencySampleNanos));
+                    latencyCount.increment();
+                });
+    }
+
+    /**
+     * The most stressed of the overload signals, where 1.0 means it has reached its configured limit.
+     */
+    public double pressure() {
+        double lag = (double) eventLoopLagNanos / maxEventLoopLag.toNanos();
+        double load = (double) inFlight.get() / maxInFlight;
+        double latency = latencyEwmaNanos / maxLatency.toNanos();
+        return Math.max(lag, Math.max(load, latency));
+    }
+
+    private Priority priorityOf(String path) {
+        if (criticalPaths.stream().anyMatch(path::startsWith)) {
+            return Priority.CRITICAL;
+        }
+        if (backgroundPaths.stream().anyMatch(path::startsWith)) {
+            return Priority.BACKGROUND;
+        }
+        if (lowPaths.stream().anyMatch(path::startsWith)) {
+            return Priority.LOW;
+        }
+        return Priority.NORMAL;
+    }
+
+    private boolean isStream(ServerWebExchange exchange) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        return streamPatterns.stream().anyMatch(pattern -> pattern.matches(path));
+    }
+
+    /**
+     * Runs once per probe interval: measures event-loop lag and folds the interval's average latency
+     * into the moving average. An interval with no completed requests counts as zero latency, so the
+     * average cannot stay high once shedding has stopped traffic; requests stuck upstream show up as
+     * requests in flight instead.
+     */
+    void sample() {
+        probeEventLoops();
+        // A request completing between the two resets only shifts its sample to the next interval
+        long count = latencyCount.sumThenReset();
+        long sum = latencySumNanos.sumThenReset();
+        double average = count == 0 ? 0 : (double) sum / count;
+        latencyEwmaNanos += (average - latencyEwmaNanos) * latencySmoothing;
+    }
+
+    private void probeEventLoops() {
+        long now = System.nanoTime();
+        long worst = 0;
+        for (EventLoopProbe probe : probes) {
+            worst = Math.max(worst, probe.lag(now));
+            probe.submit(now);
+        }
+        eventLoopLagNanos = worst;
+    }
+
+    /**
+     * Measures how long a task waits to run on one event loop. A loop still busy with the previous
+     * probe reports the time that probe has been waiting, so a blocked loop shows up as lag.
+     */
+    private static final class EventLoopProbe {
+        private final EventExecutor executor;
+        private final AtomicLong pendingSince = new AtomicLong();
+        private volatile long lastLagNanos;
+
+        private EventLoopProbe(EventExecutor executor) {
+            this.executor = executor;
+        }
+
+        private long lag(long now) {
+            long pending = pendingSince.get();
+            return pending != 0 ? now - pending : lastLagNanos;
+        }
+
+        private void submit(long now) {
+            if (!pendingSince.compareAndSet(0, now)) {
+                return;
+            }
+            executor.execute(() -> {
+                lastLagNanos = System.nanoTime() - now;
+                pendingSince.set(0);
+            });
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ecommerce.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-flight for identical concurrent GETs: the first request for a key goes upstream, and
+ * requests for the same key arriving while it is in flight wait for its response and replay it
+ * instead of making their own call. Only for routes whose responses do not depend on the caller.
+ *
+ * Waiters fall back to their own upstream call when the shared response is too large to buffer,
+ * the leading request is cancelled, or they have waited longer than the route allows.
+ */
+@Component
+public class RequestCoalescingFilter extends AbstractGatewayFilterFactory<RequestCoalescingFilter.Config> {
+
+    private static final List<String> UNSHARED_HEADERS = List.of(HttpHeaders.CONNECTION,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.SET_COOKIE, "Keep-Alive");
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final int maxWaiters;
+    private final long maxBodyBytes;
+    private final Counter leaders;
+    private final Counter followers;
+    private final Counter bypassed;
+
+    public RequestCoalescingFilter(@Value("${gateway.coalescing.max-waiters:1000}") int maxWaiters,
+            @Value("${gateway.coalescing.max-body-bytes:1048576}") long maxBodyBytes,
+            MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.maxWaiters = maxWaiters;
+        this.maxBodyBytes = maxBodyBytes;
+        this.leaders = Counter.builder("gateway.coalescing.requests").tag("role", "leader")
+                .description("Requests that went upstream on behalf of identical concurrent requests")
+                .register(meterRegistry);
+        this.followers = Counter.builder("gateway.coalescing.requests").tag("role", "follower")
+                .description("Requests answered with the response of an identical in-flight request")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("gateway.coalescing.requests").tag("role", "bypassed")
+                .description("Requests that joined an in-flight request but had to go upstream themselves")
+                .register(meterRegistry);
+        Gauge.builder("gateway.coalescing.in-flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            String key = coalescingKey(request);
+            InFlight flight = new InFlight();
+            InFlight existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                return follow(existing, config)
+                        .flatMap(shared -> shared.isPresent()
+                                ? replay(exchange, shared.get())
+                                : Mono.defer(() -> {
+                                    bypassed.increment();
+                                    return chain.filter(exchange);
+                                }));
+            }
+
+            leaders.increment();
+            ServerHttpResponseDecorator capturing = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    if (getHeaders().getContentLength() > maxBodyBytes) {
+                        finish(key, flight, null);
+                        return super.writeWith(body);
+                    }
+                    // A chunked body past the limit releases the waiters as soon as it gets there
+                    return super.writeWith(BodyCapture.capture(body, maxBodyBytes, bufferFactory(),
+                            bytes -> finish(key, flight,
+                                    new SharedResponse(getStatusCode(), copyHeaders(getHeaders()), bytes)),
+                            () -> finish(key, flight, null)));
+                }
+            };
+            // Errors, cancellation and bodiless completions release the waiters to go upstream themselves
+            return chain.filter(exchange.mutate().response(capturing).build())
+                    .doFinally(signal -> finish(key, flight, null));
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Optional<SharedResponse>> follow(InFlight flight, Config config) {
+        if (flight.waiters.incrementAndGet() > maxWaiters) {
+            flight.waiters.decrementAndGet();
+            return Mono.just(Optional.empty());
+        }
+        return flight.result.asMono()
+                .timeout(config.getMaxWait())
+                .onErrorResume(TimeoutException.class, e -> Mono.empty())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<Void> replay(ServerWebExchange exchange, SharedResponse shared) {
+        followers.increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    // Only the first call for a flight has any effect
+    private void finish(String key, InFlight flight, SharedResponse shared) {
+        // Removed first, so requests arriving from now on start a new flight instead of joining a finished one
+        inFlight.remove(key, flight);
+        if (shared != null) {
+            flight.result.tryEmitValue(shared);
+        } else {
+            flight.result.tryEmitEmpty();
+        }
+    }
+
+    private static HttpHeaders copyHeaders(HttpHeaders source) {
+        HttpHeaders headers = new HttpHeaders();
+        source.forEach((name, values) -> {
+            if (UNSHARED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                headers.put(name, values);
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private static String coalescingKey(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return request.getURI().getRawPath() + '?' + request.getURI().getRawQuery()
+                + '|' + headers.getFirst(HttpHeaders.ACCEPT)
+                + '|' + headers.getFirst(HttpHeaders.ACCEPT_ENCODING)
+                + '|' + headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE);
+    }
+
+    private static final class InFlight {
+        private final Sinks.One<SharedResponse> result = Sinks.one();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    public static class Config {
+        // Longest a request waits for an identical in-flight one before going upstream itself
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public Config setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.ecommerce.gateway.filter;
+
+import com.ecommerce.gateway.cache.ResponseCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves repeated GETs from an in-memory cache instead of forwarding them. Responses are stored only
+ * when the upstream returns 200 and allows shared caching; their lifetime is the upstream s-maxage or
+ * max-age, or the route's default TTL when the upstream says nothing. Clients presenting the cached
+ * ETag in If-None-Match get a 304.
+ */
+@Component
+public class ResponseCacheFilter extends AbstractGatewayFilterFactory<ResponseCacheFilter.Config> {
+
+    // Headers that describe the connection to the upstream, not the response itself
+    private static final List<String> UNCACHED_HEADERS = List.of(HttpHeaders.CONNECTION,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.SET_COOKIE, HttpHeaders.DATE, HttpHeaders.AGE,
+            "Keep-Alive", "X-Cache");
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*(s-maxage|max-age)\\s*=\\s*(\\d+)");
+
+    private final ResponseCache responseCache;
+    private final long maxEntryBytes;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+
+    public ResponseCacheFilter(ResponseCache responseCache,
+            @Value("${gateway.response-cache.max-entry-bytes:1048576}") long maxEntryBytes,
+            MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.responseCache = responseCache;
+        this.maxEntryBytes = maxEntryBytes;
+        this.hits = Counter.builder("gateway.response.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("gateway.response.cache").tag("result", "miss").register(meterRegistry);
+        this.notModified = Counter.builder("gateway.response.cache").tag("result", "not-modified")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Must wrap the response before NettyWriteResponseFilter writes the upstream body into it
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            String key = cacheKey(request);
+            long now = System.currentTimeMillis();
+            if (!hasNoCache(request.getHeaders())) {
+                ResponseCache.CachedResponse cached = responseCache.get(key);
+                if (cached != null && cached.isFresh(now)) {
+                    return writeCached(exchange, cached, now);
+                }
+            }
+
+            misses.increment();
+            ServerHttpResponse response = exchange.getResponse();
+            ServerHttpResponseDecorator capturing = new ServerHttpResponseDecorator(response) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    long ttlMillis = cacheTtlMillis(exchange, getStatusCode(), getHeaders(), config);
+                    if (ttlMillis <= 0 || getHeaders().getContentLength() > maxEntryBytes) {
+                        return super.writeWith(body);
+                    }
+                    // Without a Content-Length the size is only known once the body has been read, so a
+                    // body past the limit streams through uncached rather than being held in full
+                    getHeaders().set("X-Cache", "MISS");
+                    return super.writeWith(BodyCapture.capture(body, maxEntryBytes, bufferFactory(),
+                            bytes -> store(key, request.getPath().value(), getHeaders(), bytes, ttlMillis),
+                            () -> { }));
+                }
+            };
+            return chain.filter(exchange.mutate().response(capturing).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, ResponseCache.CachedResponse cached, long now) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.headers());
+        headers.set(HttpHeaders.AGE, String.valueOf((now - cached.storedAtMillis()) / 1000));
+        headers.set("X-Cache", "HIT");
+
+        List<String> ifNoneMatch = exchange.getRequest().getHeaders().getIfNoneMatch();
+        if (ifNoneMatch.contains(cached.etag()) || ifNoneMatch.contains("*")) {
+            notModified.increment();
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        hits.increment();
+        response.setStatusCode(HttpStatusCode.valueOf(cached.status()));
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private void store(String key, String path, HttpHeaders upstreamHeaders, byte[] body, long ttlMillis) {
+        HttpHeaders headers = new HttpHeaders();
+        upstreamHeaders.forEach((name, values) -> {
+            if (UNCACHED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                headers.put(name, values);
+            }
+        });
+        String etag = upstreamHeaders.getETag();
+        if (etag == null) {
+            etag = contentEtag(body);
+            headers.setETag(etag);
+        }
+        headers.setContentLength(body.length);
+        long now = System.currentTimeMillis();
+        responseCache.put(key, new ResponseCache.CachedResponse(path, HttpStatus.OK.value(),
+                HttpHeaders.readOnlyHttpHeaders(headers), body, etag, now, now + ttlMillis));
+    }
+
+    /**
+     * How long the response may be cached, or 0 if it must not be.
+     */
+    private static long cacheTtlMillis(ServerWebExchange exchange, HttpStatusCode status, HttpHeaders headers,
+            Config config) {
+        if (status == null || status.value() != HttpStatus.OK.value()
+                || exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR) != null
+                || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || headers.getVary().contains("*")) {
+            return 0;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return config.getTtl().toMillis();
+        }
+        String directives = cacheControl.toLowerCase();
+        if (directives.contains("no-store") || directives.contains("private") || directives.contains("no-cache")) {
+            return 0;
+        }
+        // s-maxage applies to shared caches like this one and wins over max-age
+        Long maxAge = null;
+        Long sharedMaxAge = null;
+        Matcher matcher = MAX_AGE.matcher(directives);
+        while (matcher.find()) {
+            long seconds = Long.parseLong(matcher.group(2));
+            if (matcher.group(1).equals("s-maxage")) {
+                sharedMaxAge = seconds;
+            } else {
+                maxAge = seconds;
+            }
+        }
+        Long lifetime = sharedMaxAge != null ? sharedMaxAge : maxAge;
+        return lifetime != null ? lifetime * 1000 : config.getTtl().toMillis();
+    }
+
+    private static boolean hasNoCache(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        return (cacheControl != null && cacheControl.toLowerCase().contains("no-cache"))
+                || headers.getOrEmpty(HttpHeaders.PRAGMA).contains("no-cache");
+    }
+
+    // Path and query as the client sent them, plus the request headers product responses vary on
+    private static String cacheKey(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return request.getURI().getRawPath() + '?' + request.getURI().getRawQuery()
+                + '|' + headers.getFirst(HttpHeaders.ACCEPT)
+                + '|' + headers.getFirst(HttpHeaders.ACCEPT_ENCODING)
+                + '|' + headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE);
+    }
+
+    private static String contentEtag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 27) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static class Config {
+        // Used when the upstream response carries no Cache-Control
+        private Duration ttl = Duration.ofSeconds(30);
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public Config setTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+    }
+}
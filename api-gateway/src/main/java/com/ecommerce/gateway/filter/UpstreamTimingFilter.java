@@ -0,0 +1,30 @@
+package com.ecommerce.gateway.filter;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times the proxied call, from just before NettyRoutingFilter sends it until the upstream response
+ * headers have arrived, as the upstream stage of {@link GatewayTimingFilter}.
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnTerminate(() -> GatewayTimingFilter.addStage(exchange, "upstream", System.nanoTime() - start))
+                .doOnCancel(() -> GatewayTimingFilter.addStage(exchange, "upstream", System.nanoTime() - start));
+    }
+}
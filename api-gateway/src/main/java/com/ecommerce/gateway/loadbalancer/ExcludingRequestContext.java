@@ -0,0 +1,23 @@
+package com.ecommerce.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+
+/**
+ * Request context asking the load balancer for any instance but one, used to send a second copy of
+ * a request somewhere other than the first.
+ */
+public class ExcludingRequestContext extends RequestDataContext {
+
+    private final ServiceInstance excluded;
+
+    public ExcludingRequestContext(RequestData clientRequest, ServiceInstance excluded) {
+        super(clientRequest);
+        this.excluded = excluded;
+    }
+
+    public boolean excludes(ServiceInstance instance) {
+        return instance.getHost().equals(excluded.getHost()) && instance.getPort() == excluded.getPort();
+    }
+}
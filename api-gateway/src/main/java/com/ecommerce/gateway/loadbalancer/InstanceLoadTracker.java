@@ -0,0 +1,194 @@
+package com.ecommerce.gateway.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the requests in flight and a decaying average of the latency of every upstream instance,
+ * fed by the load balancer lifecycle of the gateway's lb:// routes. Failed requests and 5xx
+ * responses count as at least the failure penalty, so an instance that fails fast does not look fast.
+ * <p>
+ * A caller that knows better than the load balancer filter how a request ended can {@link #detach}
+ * it and report the outcome with a completion of its own.
+ */
+@Component
+public class InstanceLoadTracker implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    private final Map<String, InstanceLoad> instances = new ConcurrentHashMap<>();
+    private final AtomicLong lastPruneNanos = new AtomicLong(System.nanoTime());
+    // Compared by identity: the load balancer filter completes with the very response it chose
+    private final Set<Response<ServiceInstance>> detached =
+            Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<>()));
+    private final Set<String> latencyAwareServices;
+    private final long decayNanos;
+    private final long warmUpNanos;
+    private final long failurePenaltyNanos;
+    private final long idleTimeoutNanos;
+
+    public InstanceLoadTracker(
+            @Value("${gateway.load-balancer.latency-aware-services:}") Set<String> latencyAwareServices,
+            @Value("${gateway.load-balancer.decay:10s}") Duration decay,
+            @Value("${gateway.load-balancer.warm-up:30s}") Duration warmUp,
+            @Value("${gateway.load-balancer.failure-penalty:1s}") Duration failurePenalty,
+            @Value("${gateway.load-balancer.idle-timeout:10m}") Duration idleTimeout) {
+        this.latencyAwareServices = latencyAwareServices;
+        this.decayNanos = decay.toNanos();
+        this.warmUpNanos = warmUp.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    public boolean isLatencyAware(String serviceId) {
+        return latencyAwareServices.contains(serviceId);
+    }
+
+    /**
+     * Ignores the lifecycle completion for this load balancer response; the caller reports the
+     * request itself, with a completion for a different response object of the same instance.
+     */
+    public void detach(Response<ServiceInstance> lbResponse) {
+        detached.add(lbResponse);
+    }
+
+    // For a detached request whose lifecycle will not be completed after all, such as a cancelled one
+    public void release(Response<ServiceInstance> lbResponse) {
+        detached.remove(lbResponse);
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer() || !isLatencyAware(lbResponse.getServer().getServiceId())) {
+            return;
+        }
+        if (request.getContext() instanceof TimedRequestContext timed) {
+            timed.setRequestStartTime(System.nanoTime());
+        }
+        loadOf(lbResponse.getServer()).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse != null && detached.remove(lbResponse)) {
+            return;
+        }
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null
+                || !lbResponse.hasServer() || !isLatencyAware(lbResponse.getServer().getServiceId())) {
+            return;
+        }
+        long now = System.nanoTime();
+        InstanceLoad load = loadOf(lbResponse.getServer());
+        load.inFlight.decrementAndGet();
+
+        Object context = completionContext.getLoadBalancerRequest().getContext();
+        if (context instanceof TimedRequestContext timed && timed.getRequestStartTime() > 0) {
+            long latency = now - timed.getRequestStartTime();
+            ResponseData response = completionContext.getClientResponse();
+            boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                    || response != null && response.getHttpStatus() != null
+                    && response.getHttpStatus().is5xxServerError();
+            load.record(failed ? Math.max(latency, failurePenaltyNanos) : latency, now, decayNanos);
+        }
+        pruneIdle(now);
+    }
+
+    InstanceLoad loadOf(ServiceInstance instance) {
+        return instances.computeIfAbsent(keyOf(instance), key -> new InstanceLoad(System.nanoTime()));
+    }
+
+    /**
+     * Share of full traffic an instance should take while warming up, rising linearly from a tenth
+     * when first seen to all of it once the warm-up has passed.
+     */
+    double warmUpWeight(InstanceLoad load, long now) {
+        if (warmUpNanos <= 0) {
+            return 1.0;
+        }
+        return Math.min(1.0, Math.max(0.1, (double) (now - load.firstSeenNanos) / warmUpNanos));
+    }
+
+    long decayNanos() {
+        return decayNanos;
+    }
+
+    // Forgets instances that have been idle long enough to have most likely left the registry
+    private void pruneIdle(long now) {
+        long lastPrune = lastPruneNanos.get();
+        if (now - lastPrune < idleTimeoutNanos || !lastPruneNanos.compareAndSet(lastPrune, now)) {
+            return;
+        }
+        instances.values().removeIf(load -> load.isIdleSince(now - idleTimeoutNanos));
+    }
+
+    private static String keyOf(ServiceInstance instance) {
+        return instance.getServiceId() + "@" + instance.getHost() + ":" + instance.getPort();
+    }
+
+    static final class InstanceLoad {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final long firstSeenNanos;
+        private double latencyNanos;
+        private long lastActiveNanos;
+        private boolean sampled;
+
+        private InstanceLoad(long now) {
+            this.firstSeenNanos = now;
+            this.lastActiveNanos = now;
+        }
+
+        // Average weighted by recency rather than by count, so a quiet instance's history fades
+        synchronized void record(long latency, long now, long decayNanos) {
+            if (!sampled) {
+                latencyNanos = latency;
+                sampled = true;
+            } else {
+                double weight = Math.exp(-(double) (now - lastActiveNanos) / decayNanos);
+                latencyNanos = latencyNanos * weight + latency * (1 - weight);
+            }
+            lastActiveNanos = now;
+        }
+
+        synchronized boolean isIdleSince(long since) {
+            return inFlight.get() == 0 && lastActiveNanos < since;
+        }
+
+        /**
+         * The average latency, decayed towards zero while the instance gets no traffic so that an
+         * instance that was once slow is eventually tried again. Negative when nothing was recorded yet.
+         */
+        synchronized double latency(long now, long decayNanos) {
+            if (!sampled) {
+                return -1;
+            }
+            return latencyNanos * Math.exp(-(double) (now - lastActiveNanos) / decayNanos);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ecommerce.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer client configuration applied to every service. Services listed under
+ * gateway.load-balancer.latency-aware-services get the least loaded balancer, the rest keep round robin.
+ *
+ * Not a @Configuration on purpose: it is instantiated in each service's own load balancer context.
+ */
+public class LatencyAwareLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory, InstanceLoadTracker loadTracker) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        ObjectProvider<ServiceInstanceListSupplier> supplierProvider =
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        if (loadTracker.isLatencyAware(serviceId)) {
+            return new LeastLoadedLoadBalancer(serviceId, supplierProvider, loadTracker);
+        }
+        return new RoundRobinLoadBalancer(supplierProvider, serviceId);
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: picks two instances at random and sends the request to the one with the
+ * lower cost, its average latency times its requests in flight plus one, divided by its warm-up
+ * weight. A slow or paused instance quickly builds up both and stops being chosen, while random
+ * sampling keeps the gateway replicas from all piling onto the same instance. An instance excluded by
+ * an {@link ExcludingRequestContext} is never chosen.
+ */
+public class LeastLoadedLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final InstanceLoadTracker loadTracker;
+
+    public LeastLoadedLoadBalancer(String serviceId,
+            ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+            InstanceLoadTracker loadTracker) {
+        this.serviceId = serviceId;
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.loadTracker = loadTracker;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier =
+                serviceInstanceListSupplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> choose(eligible(instances, request)));
+    }
+
+    private static List<ServiceInstance> eligible(List<ServiceInstance> instances, Request request) {
+        if (!(request.getContext() instanceof ExcludingRequestContext excluding)) {
+            return instances;
+        }
+        return instances.stream().filter(instance -> !excluding.excludes(instance)).toList();
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(cost(a, b) <= cost(b, a) ? a : b);
+    }
+
+    // An instance with no latency yet is assumed to be as fast as the one it is compared with
+    private double cost(ServiceInstance instance, ServiceInstance other) {
+        long now = System.nanoTime();
+        InstanceLoadTracker.InstanceLoad load = loadTracker.loadOf(instance);
+        double latency = load.latency(now, loadTracker.decayNanos());
+        if (latency < 0) {
+            latency = Math.max(loadTracker.loadOf(other).latency(now, loadTracker.decayNanos()), 1);
+        }
+        return Math.max(latency, 1) * (load.inFlight.get() + 1) / loadTracker.warmUpWeight(load, now);
+    }
+
+    @Override
+    public String toString() {
+        return "LeastLoadedLoadBalancer[" + serviceId + "]";
+    }
+}
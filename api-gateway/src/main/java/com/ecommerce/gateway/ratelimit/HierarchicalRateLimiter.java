@@ -0,0 +1,196 @@
+package com.ecommerce.gateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory rate limiter that applies several limits to each request in one pass: per user, per
+ * client address, per route and one for the whole gateway. The most specific layer is checked
+ * first; when a layer denies the request, the tokens already taken from the layers before it are
+ * refunded, so a rejected request consumes nothing. Anonymous requests skip the user layer.
+ *
+ * Expects keys built by {@link RequestIdentity#layeredKey()}.
+ */
+public class HierarchicalRateLimiter extends AbstractRateLimiter<HierarchicalRateLimiter.RouteBudgets> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "hierarchical-rate-limiter";
+
+    private static final String GLOBAL_KEY = "global";
+
+    public enum Layer {
+        USER, IP, ROUTE, GLOBAL
+    }
+
+    private final RouteBudgets defaults;
+    private final Map<String, RouteBudgets> routeBudgets;
+    private final Budget globalBudget;
+    private final Duration idleTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Map<Layer, Map<String, TokenBucket>> buckets = new HashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenance;
+
+    public HierarchicalRateLimiter(RouteBudgets defaults, Map<String, RouteBudgets> routeBudgets, Budget globalBudget,
+            Duration idleTimeout, MeterRegistry meterRegistry, ConfigurationService configurationService) {
+        super(RouteBudgets.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaults = defaults;
+        this.routeBudgets = routeBudgets;
+        this.globalBudget = globalBudget;
+        this.idleTimeout = idleTimeout;
+        this.meterRegistry = meterRegistry;
+        for (Layer layer : Layer.values()) {
+            buckets.put(layer, new ConcurrentHashMap<>());
+        }
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hierarchical-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictMillis = Math.max(1000, idleTimeout.toMillis() / 2);
+        maintenance.scheduleWithFixedDelay(this::evictIdleBuckets, evictMillis, evictMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        maintenance.shutdownNow();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        RequestIdentity identity = RequestIdentity.fromLayeredKey(id);
+        RouteBudgets route = routeBudgets.getOrDefault(routeId, getConfig().getOrDefault(routeId, defaults));
+        long now = System.nanoTime();
+
+        Layer[] layers = Layer.values();
+        Budget[] budgets = {
+                budget(route.getUser(), defaults.getUser()),
+                budget(route.getIp(), defaults.getIp()),
+                budget(route.getRoute(), defaults.getRoute()),
+                globalBudget
+        };
+        String[] keys = {
+                identity.subject() != null ? routeId + ":" + identity.subject() : null,
+                routeId + ":" + identity.clientIp(),
+                routeId,
+                GLOBAL_KEY
+        };
+
+        TokenBucket[] taken = new TokenBucket[layers.length];
+        long remaining = Long.MAX_VALUE;
+        for (int i = 0; i < layers.length; i++) {
+            if (keys[i] == null || budgets[i] == null) {
+                continue;
+            }
+            Budget budget = budgets[i];
+            TokenBucket bucket = buckets.get(layers[i])
+                    .computeIfAbsent(keys[i], key -> new TokenBucket(budget.getBurstCapacity(), now));
+            long left = bucket.tryAcquire(budget.getReplenishRate(), budget.getBurstCapacity(), 1, now);
+            if (left < 0) {
+                for (int j = 0; j < i; j++) {
+                    if (taken[j] != null) {
+                        taken[j].refund(1, budgets[j].getBurstCapacity());
+                    }
+                }
+                rejected(routeId, layers[i]).increment();
+                return Mono.just(new Response(false, Map.of(
+                        "X-RateLimit-Remaining", "0",
+                        "X-RateLimit-Limited-By", layers[i].name().toLowerCase())));
+            }
+            taken[i] = bucket;
+            remaining = Math.min(remaining, left);
+        }
+        return Mono.just(new Response(true, Map.of("X-RateLimit-Remaining", String.valueOf(remaining))));
+    }
+
+    private static Budget budget(Budget routeBudget, Budget defaultBudget) {
+        return routeBudget != null ? routeBudget : defaultBudget;
+    }
+
+    private Counter rejected(String routeId, Layer layer) {
+        return rejectedCounters.computeIfAbsent(routeId + ":" + layer, key -> Counter
+                .builder("gateway.rate-limit.rejected")
+                .description("Requests rejected by the hierarchical rate limiter")
+                .tag("route", routeId)
+                .tag("layer", layer.name().toLowerCase())
+                .register(meterRegistry));
+    }
+
+    private void evictIdleBuckets() {
+        long idleBefore = System.nanoTime() - idleTimeout.toNanos();
+        buckets.values().forEach(layer -> layer.values().removeIf(bucket -> bucket.idleSince(idleBefore)));
+    }
+
+    public static class Budget {
+        private int replenishRate;
+        private int burstCapacity;
+
+        public Budget() {
+        }
+
+        public Budget(int replenishRate, int burstCapacity) {
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+        }
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+    }
+
+    /**
+     * Budgets of one route; layers left unset use the defaults.
+     */
+    public static class RouteBudgets {
+        private Budget user;
+        private Budget ip;
+        private Budget route;
+
+        public Budget getUser() {
+            return user;
+        }
+
+        public void setUser(Budget user) {
+            this.user = user;
+        }
+
+        public Budget getIp() {
+            return ip;
+        }
+
+        public void setIp(Budget ip) {
+            this.ip = ip;
+        }
+
+        public Budget getRoute() {
+            return route;
+        }
+
+        public void setRoute(Budget route) {
+            this.route = route;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.ecommerce.gateway.ratelimit;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.Min;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket rate limiter that keeps its buckets in memory, so a request costs a map lookup and a
+ * compare-and-set instead of a Redis round trip. Buckets refill lazily from the time elapsed since
+ * their last use and are dropped once idle long enough to have refilled completely.
+ *
+ * Each replica enforces its limits on its own. With a Redis template given, replicas periodically
+ * add the tokens they consumed to a shared hash and debit their buckets by what the others consumed,
+ * which keeps the combined rate close to the configured one without Redis on the request path.
+ */
+public class LocalTokenBucketRateLimiter extends AbstractRateLimiter<LocalTokenBucketRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalTokenBucketRateLimiter.class);
+
+    private static final String SYNC_HASH_KEY = "gateway:local-rate-limiter:consumed";
+
+    private final Config defaultConfig;
+    private final Duration idleTimeout;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration syncInterval;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenance;
+
+    /**
+     * @param redisTemplate used to share consumption between replicas, or null to limit each replica independently
+     */
+    public LocalTokenBucketRateLimiter(Config defaultConfig, Duration idleTimeout,
+            ReactiveStringRedisTemplate redisTemplate, Duration syncInterval,
+            ConfigurationService configurationService) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaultConfig = defaultConfig;
+        this.idleTimeout = idleTimeout;
+        this.redisTemplate = redisTemplate;
+        this.syncInterval = syncInterval;
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "local-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long evictMillis = Math.max(1000, idleTimeout.toMillis() / 2);
+        maintenance.scheduleWithFixedDelay(this::evictIdleBuckets, evictMillis, evictMillis, TimeUnit.MILLISECONDS);
+        if (redisTemplate != null) {
+            maintenance.scheduleWithFixedDelay(this::syncWithReplicas, syncInterval.toMillis(),
+                    syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        maintenance.shutdownNow();
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        String key = routeId + ":" + id;
+        long now = System.nanoTime();
+
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(config.getBurstCapacity(), now));
+        long remaining = bucket.tryAcquire(config.getReplenishRate(), config.getBurstCapacity(),
+                config.getRequestedTokens(), now);
+        boolean allowed = remaining >= 0;
+        if (allowed) {
+            bucket.unsynced.addAndGet(config.getRequestedTokens());
+        }
+
+        Map<String, String> headers = Map.of(
+                "X-RateLimit-Remaining", String.valueOf(Math.max(remaining, 0)),
+                "X-RateLimit-Replenish-Rate", String.valueOf(config.getReplenishRate()),
+                "X-RateLimit-Burst-Capacity", String.valueOf(config.getBurstCapacity()),
+                "X-RateLimit-Requested-Tokens", String.valueOf(config.getRequestedTokens()));
+        return Mono.just(new Response(allowed, headers));
+    }
+
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    private void evictIdleBuckets() {
+        long idleBefore = System.nanoTime() - idleTimeout.toNanos();
+        // A request racing the removal still draws from the old, nearly full bucket; harmless
+        buckets.entrySet().removeIf(entry -> entry.getValue().idleSince(idleBefore)
+                && entry.getValue().unsynced.get() == 0);
+    }
+
+    private void syncWithReplicas() {
+        try {
+            Flux.fromIterable(buckets.entrySet())
+                    .filter(entry -> entry.getValue().unsynced.get() > 0)
+                    .flatMap(entry -> {
+                        Bucket bucket = entry.getValue();
+                        long consumed = bucket.unsynced.getAndSet(0);
+                        return redisTemplate.<String, String>opsForHash()
+                                .increment(SYNC_HASH_KEY, entry.getKey(), consumed)
+                                .doOnNext(total -> bucket.applyRemote(total, consumed))
+                                .onErrorResume(e -> {
+                                    bucket.unsynced.addAndGet(consumed);
+                                    return Mono.empty();
+                                });
+                    }, 64)
+                    .then(redisTemplate.expire(SYNC_HASH_KEY, idleTimeout.plus(syncInterval)))
+                    .block(syncInterval.multipliedBy(5));
+        } catch (Exception e) {
+            logger.warn("Rate limit sync with other gateway replicas failed: {}", e.getMessage());
+        }
+    }
+
+    private static final class Bucket extends TokenBucket {
+        private final AtomicLong unsynced = new AtomicLong();
+
+        // Shared consumption total seen at the last sync, or -1 before the first
+        private volatile long lastSeenTotal = -1;
+
+        private Bucket(int burstCapacity, long now) {
+            super(burstCapacity, now);
+        }
+
+        // Removes the tokens other replicas consumed since the last sync
+        private void applyRemote(long total, long consumed) {
+            long previous = lastSeenTotal;
+            lastSeenTotal = total;
+            if (previous < 0 || total < previous) {
+                // First sync of this bucket, or the shared hash expired: take the total as the new baseline
+                return;
+            }
+            long remote = total - previous - consumed;
+            if (remote > 0) {
+                debit(remote);
+            }
+        }
+    }
+
+    @Validated
+    public static class Config {
+        @Min(1)
+        private int replenishRate;
+
+        @Min(0)
+        private int burstCapacity;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        public Config() {
+        }
+
+        public Config(int replenishRate, int burstCapacity, int requestedTokens) {
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+            this.requestedTokens = requestedTokens;
+        }
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public void setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+        }
+    }
+}
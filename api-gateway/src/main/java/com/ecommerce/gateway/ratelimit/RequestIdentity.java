@@ -0,0 +1,61 @@
+package com.ecommerce.gateway.ratelimit;
+
+import com.ecommerce.gateway.filter.JwtAuthenticationFilter;
+import com.ecommerce.gateway.security.JwtTokenVerifier;
+import io.jsonwebtoken.Claims;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Who a request comes from, for rate limiting: the verified JWT subject, if any, and the client address.
+ */
+public record RequestIdentity(String subject, String clientIp) {
+
+    private static final String UNKNOWN_IP = "unknown";
+
+    /**
+     * Uses the subject the JWT filter verified for this exchange. On routes without that filter a
+     * bearer token is verified here (usually a cache hit); an invalid token counts as anonymous.
+     */
+    public static RequestIdentity of(ServerWebExchange exchange, JwtTokenVerifier jwtTokenVerifier) {
+        String subject = exchange.getAttribute(JwtAuthenticationFilter.SUBJECT_ATTRIBUTE);
+        if (subject == null) {
+            String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                subject = jwtTokenVerifier.verify(authHeader.substring(7))
+                        .map(Claims::getSubject)
+                        .orElse(null);
+            }
+        }
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        String clientIp = remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress() : UNKNOWN_IP;
+        return new RequestIdentity(subject, clientIp);
+    }
+
+    /**
+     * One bucket per user, or per address for anonymous requests.
+     */
+    public String principalKey() {
+        return subject != null ? "user:" + subject : "ip:" + clientIp;
+    }
+
+    /**
+     * Both parts, for limiters that apply a limit to each. Addresses contain no spaces, so the first
+     * space separates them.
+     */
+    public String layeredKey() {
+        return clientIp + " " + (subject != null ? subject : "");
+    }
+
+    public static RequestIdentity fromLayeredKey(String key) {
+        int separator = key.indexOf(' ');
+        if (separator < 0) {
+            return new RequestIdentity(null, key);
+        }
+        String subject = key.substring(separator + 1);
+        return new RequestIdentity(subject.isEmpty() ? null : subject, key.substring(0, separator));
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. Tokens are refilled lazily from the time elapsed since the last update,
+ * and every change is a compare-and-set on an immutable state.
+ */
+class TokenBucket {
+
+    private final AtomicReference<State> state;
+    private volatile long lastUsedNanos;
+
+    TokenBucket(int burstCapacity, long now) {
+        this.state = new AtomicReference<>(new State(burstCapacity, now));
+        this.lastUsedNanos = now;
+    }
+
+    /**
+     * Takes the requested tokens if available. Returns the tokens left, or -1 if the request is denied.
+     */
+    long tryAcquire(int replenishRate, int burstCapacity, int requested, long now) {
+        lastUsedNanos = now;
+        while (true) {
+            State current = state.get();
+            long elapsed = Math.max(0, now - current.refilledAt());
+            double tokens = Math.min(burstCapacity,
+                    current.tokens() + elapsed * replenishRate / 1_000_000_000d);
+            boolean allowed = tokens >= requested;
+            State next = new State(allowed ? tokens - requested : tokens, Math.max(now, current.refilledAt()));
+            if (state.compareAndSet(current, next)) {
+                return allowed ? (long) next.tokens() : -1;
+            }
+        }
+    }
+
+    /**
+     * Returns tokens taken for a request that was denied further on, never filling past the capacity.
+     */
+    void refund(int tokens, int burstCapacity) {
+        state.updateAndGet(current ->
+                new State(Math.min(burstCapacity, current.tokens() + tokens), current.refilledAt()));
+    }
+
+    /**
+     * Removes tokens consumed elsewhere, never going below empty.
+     */
+    void debit(long tokens) {
+        state.updateAndGet(current -> new State(Math.max(0, current.tokens() - tokens), current.refilledAt()));
+    }
+
+    boolean idleSince(long nanos) {
+        return lastUsedNanos < nanos;
+    }
+
+    private record State(double tokens, long refilledAt) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.ecommerce.gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies JWTs with a signing key and parser built once at startup. Verified tokens are cached,
+ * keyed by their SHA-256 hash, until they expire, so a session's repeated calls pay for the
+ * signature check only once. Rejected tokens are never cached.
+ * <p>
+ * The cache is split into segments, each a small access-ordered map under its own lock, so a lookup
+ * on the event loop never scans the cache; a full segment evicts its least recently used token.
+ */
+@Component
+public class JwtTokenVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenVerifier.class);
+
+    private final JwtParser parser;
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maxTtlMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer verificationTimer;
+
+    public JwtTokenVerifier(
+            @Value("${JWT_SECRET:mySecretKey123456789012345678901234567890123456789012345678901234567890}")
+            String jwtSecret,
+            @Value("${jwt.cache.max-entries:10000}") int maxEntries,
+            @Value("${jwt.cache.max-ttl:15m}") Duration maxTtl,
+            MeterRegistry meterRegistry) {
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
+                .build();
+        int segmentCapacity = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.maxTtlMillis = maxTtl.toMillis();
+        this.hits = Counter.builder("gateway.jwt.cache")
+                .tag("result", "hit")
+                .description("JWT verifications answered from the verified-token cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("gateway.jwt.cache")
+                .tag("result", "miss")
+                .description("JWT verifications that had to check the signature")
+                .register(meterRegistry);
+        this.verificationTimer = Timer.builder("gateway.jwt.verification")
+                .description("Time spent parsing and verifying JWT signatures")
+                .register(meterRegistry);
+        Gauge.builder("gateway.jwt.cache.size", this, JwtTokenVerifier::cacheSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the claims of a valid, unexpired token, or empty if it fails verification.
+     */
+    public Optional<Claims> verify(String token) {
+        String key = hash(token);
+        Segment segment = segments[Math.floorMod(key.hashCode(), SEGMENTS)];
+        long now = System.currentTimeMillis();
+        CachedClaims cached = segment.get(key, now);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached.claims());
+        }
+        misses.increment();
+
+        Claims claims;
+        long start = System.nanoTime();
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("JWT validation failed: {}", e.getMessage());
+            return Optional.empty();
+        } finally {
+            verificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        // Cached no longer than the token's own exp, and never past max-ttl
+        Date expiration = claims.getExpiration();
+        long expiresAt = now + maxTtlMillis;
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        segment.put(key, new CachedClaims(claims, expiresAt));
+        return Optional.of(claims);
+    }
+
+    public int cacheSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record CachedClaims(Claims claims, long expiresAt) {
+    }
+
+    private static final class Segment {
+        // Access-ordered, so the eldest entry is the least recently used
+        private final LinkedHashMap<String, CachedClaims> entries;
+
+        private Segment(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedClaims> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        // Expired entries are dropped when looked up, or evicted in turn once they are the eldest
+        private synchronized CachedClaims get(String key, long now) {
+            CachedClaims cached = entries.get(key);
+            if (cached != null && cached.expiresAt() <= now) {
+                entries.remove(key);
+                return null;
+            }
+            return cached;
+        }
+
+        private synchronized void put(String key, CachedClaims claims) {
+            entries.put(key, claims);
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ecommerce.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Feeds chunked bodies, with no Content-Length, through the capture.
+ */
+class BodyCaptureTest {
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    @Test
+    void capturesBodyWithinLimit() {
+        AtomicReference<byte[]> captured = new AtomicReference<>();
+        AtomicBoolean overflowed = new AtomicBoolean();
+
+        String written = write(BodyCapture.capture(chunks("ab", "cd", "ef"), 6, bufferFactory,
+                captured::set, () -> overflowed.set(true)));
+
+        assertThat(written).isEqualTo("abcdef");
+        assertThat(new String(captured.get(), StandardCharsets.UTF_8)).isEqualTo("abcdef");
+        assertThat(overflowed).isFalse();
+    }
+
+    @Test
+    void streamsWholeBodyOncePastLimit() {
+        AtomicReference<byte[]> captured = new AtomicReference<>();
+        AtomicBoolean overflowed = new AtomicBoolean();
+
+        String written = write(BodyCapture.capture(chunks("ab", "cd", "ef", "gh"), 5, bufferFactory,
+                captured::set, () -> overflowed.set(true)));
+
+        assertThat(written).isEqualTo("abcdefgh");
+        assertThat(captured.get()).isNull();
+        assertThat(overflowed).isTrue();
+    }
+
+    private Flux<DataBuffer> chunks(String... parts) {
+        return Flux.fromArray(parts).map(part -> bufferFactory.wrap(part.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String write(Flux<DataBuffer> body) {
+        StringBuilder written = new StringBuilder();
+        body.doOnNext(buffer -> {
+            written.append(buffer.toString(StandardCharsets.UTF_8));
+            DataBufferUtils.release(buffer);
+        }).blockLast();
+        return written.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.gateway.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that only the bounded single-product reads of the product route are hedged.
+ */
+class HedgingFilterConfigTest {
+
+    private final HedgingFilter.Config config = new HedgingFilter.Config().setPaths(List.of("/products/{id:\\d+}"));
+
+    @Test
+    void hedgesSingleProductReads() {
+        assertThat(config.matches(PathContainer.parsePath("/products/42"))).isTrue();
+    }
+
+    @Test
+    void leavesListEndpointsAlone() {
+        assertThat(config.matches(PathContainer.parsePath("/products/all"))).isFalse();
+        assertThat(config.matches(PathContainer.parsePath("/products/search"))).isFalse();
+        assertThat(config.matches(PathContainer.parsePath("/products"))).isFalse();
+        assertThat(config.matches(PathContainer.parsePath("/products/category/books"))).isFalse();
+    }
+
+    @Test
+    void hedgesNothingByDefault() {
+        assertThat(new HedgingFilter.Config().matches(PathContainer.parsePath("/products/42"))).isFalse();
+    }
+}
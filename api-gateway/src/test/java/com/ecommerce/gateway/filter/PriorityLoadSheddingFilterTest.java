@@ -0,0 +1,168 @@
+package com.ecommerce.gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the filter into overload with stub upstreams: one that holds requests open until released,
+ * and one that answers slowly.
+ */
+class PriorityLoadSheddingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Sinks.Empty<Void>> pending = new ArrayList<>();
+    private final List<Disposable> subscriptions = new ArrayList<>();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private PriorityLoadSheddingFilter filter;
+
+    // Holds every request open until the test releases it
+    private final WebFilterChain hangingUpstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        Sinks.Empty<Void> response = Sinks.empty();
+        pending.add(response);
+        return response.asMono();
+    };
+
+    // Answers after 100ms, far beyond the 20ms latency limit below
+    private final WebFilterChain slowUpstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        return Mono.delay(Duration.ofMillis(100)).then();
+    };
+
+    private final WebFilterChain fastUpstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        return Mono.empty();
+    };
+
+    @BeforeEach
+    void setUp() {
+        filter = new PriorityLoadSheddingFilter(meterRegistry);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "criticalPaths", List.of("/api/orders", "/api/payments"));
+        ReflectionTestUtils.setField(filter, "lowPaths", List.of("/api/products"));
+        ReflectionTestUtils.setField(filter, "backgroundPaths", List.of("/actuator", "/swagger-ui"));
+        ReflectionTestUtils.setField(filter, "streamPaths", List.of("/api/orders/user/*/stream"));
+        ReflectionTestUtils.setField(filter, "maxEventLoopLag", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(filter, "maxInFlight", 10);
+        ReflectionTestUtils.setField(filter, "maxLatency", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(filter, "latencyDecay", Duration.ofSeconds(5));
+        // Long enough that the scheduled probe never runs; the tests call sample() themselves
+        ReflectionTestUtils.setField(filter, "probeInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(filter, "criticalShedAt", 1.5);
+        ReflectionTestUtils.setField(filter, "normalShedAt", 1.0);
+        ReflectionTestUtils.setField(filter, "lowShedAt", 0.8);
+        ReflectionTestUtils.setField(filter, "backgroundShedAt", 0.6);
+        filter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pending.forEach(Sinks.Empty::tryEmitEmpty);
+        subscriptions.forEach(Disposable::dispose);
+        filter.stop();
+    }
+
+    @Test
+    void shedsCatalogAndBackgroundTrafficWhileCheckoutKeepsFlowing() {
+        for (int i = 0; i < 8; i++) {
+            open("/api/orders", hangingUpstream);
+        }
+        assertThat(filter.pressure()).isEqualTo(0.8);
+
+        assertThat(send("/api/products/42", fastUpstream)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(send("/swagger-ui/index.html", fastUpstream)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(send("/api/cart", fastUpstream)).isNull();
+        assertThat(send("/api/payments", fastUpstream)).isNull();
+        assertThat(send("/actuator/health", fastUpstream)).isNull();
+        assertThat(upstreamCalls).hasValue(8 + 3);
+
+        assertThat(count("low", "shed")).isEqualTo(1);
+        assertThat(count("background", "shed")).isEqualTo(1);
+        assertThat(count("critical", "admitted")).isEqualTo(9);
+        assertThat(count("normal", "admitted")).isEqualTo(1);
+    }
+
+    @Test
+    void recoversOnceRequestsInFlightComplete() {
+        for (int i = 0; i < 10; i++) {
+            open("/api/orders", hangingUpstream);
+        }
+        assertThat(send("/api/cart", fastUpstream)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        pending.forEach(Sinks.Empty::tryEmitEmpty);
+
+        assertThat(filter.pressure()).isLessThan(0.6);
+        assertThat(send("/api/products/42", fastUpstream)).isNull();
+    }
+
+    @Test
+    void openStreamsAreNotCountedAsLoad() {
+        for (int i = 0; i < 50; i++) {
+            open("/api/orders/user/" + i + "/stream", hangingUpstream);
+        }
+        filter.sample();
+
+        // Only the event-loop lag, a few microseconds against a 10s limit, remains
+        assertThat(filter.pressure()).isLessThan(0.01);
+        assertThat(send("/swagger-ui/index.html", fastUpstream)).isNull();
+
+        pending.forEach(Sinks.Empty::tryEmitEmpty);
+        filter.sample();
+
+        assertThat(filter.pressure()).isLessThan(0.01);
+    }
+
+    @Test
+    void slowUpstreamShedsUntilLatencyFadesWithoutTraffic() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("/api/orders", slowUpstream)).isNull();
+        }
+        filter.sample();
+
+        // Each 100ms response counts as at most twice the 20ms limit
+        assertThat(filter.pressure()).isGreaterThanOrEqualTo(1.5).isLessThanOrEqualTo(2.0);
+        assertThat(send("/api/orders", fastUpstream)).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        // Nothing completed in this interval, so the average fades instead of holding the gateway shut
+        filter.sample();
+
+        assertThat(filter.pressure()).isLessThan(0.6);
+        assertThat(send("/api/products/42", fastUpstream)).isNull();
+    }
+
+    private void open(String path, WebFilterChain upstream) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        subscriptions.add(filter.filter(exchange, upstream).subscribe());
+    }
+
+    private HttpStatusCode send(String path, WebFilterChain upstream) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        filter.filter(exchange, upstream).block(Duration.ofSeconds(1));
+        return exchange.getResponse().getStatusCode();
+    }
+
+    private double count(String priority, String outcome) {
+        return meterRegistry.get("gateway.load-shedding.requests")
+                .tag("priority", priority).tag("outcome", outcome)
+                .counter().count();
+    }
+}
@@ -0,0 +1,101 @@
+package com.ecommerce.common.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Records broker dwell, handler and end-to-end latency for consumed messages, and logs the
+ * slowest correlation ids per queue once per window so they can be looked up in the traces.
+ *
+ * Not a component: each service declares it as a bean, since its package is outside their scan.
+ */
+public class MessageLatencyRecorder {
+
+    // Publish time in epoch millis; AMQP's timestamp property only has second precision
+    public static final String PUBLISHED_AT_HEADER = "x-published-at";
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageLatencyRecorder.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int slowestLimit;
+    private final Map<String, PriorityQueue<SlowMessage>> slowestByQueue = new ConcurrentHashMap<>();
+
+    public MessageLatencyRecorder(MeterRegistry meterRegistry, int slowestLimit) {
+        this.meterRegistry = meterRegistry;
+        this.slowestLimit = slowestLimit;
+    }
+
+    public void record(String queue, String correlationId, Long publishedAt, long receivedAt,
+            long handlerNanos, String outcome) {
+        timer("messaging.handler", queue, outcome).record(handlerNanos, TimeUnit.NANOSECONDS);
+
+        if (publishedAt == null) {
+            return;
+        }
+
+        // Clock skew between hosts can make dwell slightly negative
+        long dwellMillis = Math.max(0, receivedAt - publishedAt);
+        long endToEndMillis = dwellMillis + TimeUnit.NANOSECONDS.toMillis(handlerNanos);
+        timer("messaging.broker.dwell", queue, outcome).record(dwellMillis, TimeUnit.MILLISECONDS);
+        timer("messaging.end_to_end", queue, outcome).record(endToEndMillis, TimeUnit.MILLISECONDS);
+
+        if (correlationId != null) {
+            trackSlowest(queue, new SlowMessage(correlationId, endToEndMillis));
+        }
+    }
+
+    // Logged rather than exported, as a correlation id tag would add new series every window
+    @Scheduled(fixedDelayString = "${messaging.latency.slowest-window-ms:60000}")
+    public void logSlowest() {
+        slowestByQueue.forEach((queue, slowest) -> {
+            List<SlowMessage> snapshot;
+            synchronized (slowest) {
+                snapshot = new ArrayList<>(slowest);
+                slowest.clear();
+            }
+            if (snapshot.isEmpty()) {
+                return;
+            }
+            snapshot.sort(Comparator.comparingLong(SlowMessage::endToEndMillis).reversed());
+            logger.info("Slowest messages on {} in the last window: {}", queue, snapshot.stream()
+                    .map(message -> message.correlationId() + "=" + message.endToEndMillis() + "ms")
+                    .collect(Collectors.joining(", ")));
+        });
+    }
+
+    private void trackSlowest(String queue, SlowMessage message) {
+        PriorityQueue<SlowMessage> slowest = slowestByQueue.computeIfAbsent(queue,
+                q -> new PriorityQueue<>(Comparator.comparingLong(SlowMessage::endToEndMillis)));
+        synchronized (slowest) {
+            if (slowest.size() < slowestLimit) {
+                slowest.add(message);
+            } else if (slowest.peek().endToEndMillis() < message.endToEndMillis()) {
+                slowest.poll();
+                slowest.add(message);
+            }
+        }
+    }
+
+    private Timer timer(String name, String queue, String outcome) {
+        return Timer.builder(name)
+                .tag("queue", queue)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private record SlowMessage(String correlationId, long endToEndMillis) {
+    }
+}
@@ -1,10 +1,14 @@
 package com.ecommerce.order.config;
 
+import com.ecommerce.common.messaging.MessageLatencyRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -19,17 +23,26 @@ public class RabbitMQConfig {
     public static final String ORDER_STATUS_QUEUE = "order.status";
     public static final String ORDER_STATUS_CHANGED_QUEUE = "order.status.changed";
     public static final String PAYMENT_STATUS_QUEUE = "order.payment.status";
+    public static final String PAYMENT_REFUND_QUEUE = "order.payment.refund";
 
     // Routing Keys
     public static final String ORDER_STATUS_ROUTING_KEY = "order.status";
     public static final String ORDER_STATUS_CHANGED_ROUTING_KEY = "order.status.changed";
     public static final String PAYMENT_STATUS_ROUTING_KEY = "order.payment.status";
+    public static final String PAYMENT_REFUND_ROUTING_KEY = "order.payment.refund";
+    public static final String PRODUCT_CHANGED_ROUTING_KEY = "product.changed";
+    public static final String PRODUCT_SNAPSHOT_REQUEST_ROUTING_KEY = "product.snapshot.request";
 
     @Bean
     public DirectExchange orderExchange() {
         return new DirectExchange(ORDER_EXCHANGE);
     }
 
+    @Bean
+    public DirectExchange productExchange() {
+        return new DirectExchange(PRODUCT_EXCHANGE);
+    }
+
     @Bean
     public Queue orderStatusQueue() {
         return QueueBuilder.durable(ORDER_STATUS_QUEUE).build();
@@ -45,6 +58,30 @@ public class RabbitMQConfig {
         return QueueBuilder.durable(PAYMENT_STATUS_QUEUE).build();
     }
 
+    // Refunds owed for payments that completed after their order was cancelled; kept until handled
+    @Bean
+    public Queue paymentRefundQueue() {
+        return QueueBuilder.durable(PAYMENT_REFUND_QUEUE).build();
+    }
+
+    // Per-replica queue that receives a copy of every order event, for state kept in memory
+    @Bean
+    public Queue orderEventBroadcastQueue() {
+        return new AnonymousQueue();
+    }
+
+    // Per-replica queue for product change events and the snapshot pages this replica asks for
+    @Bean
+    public Queue productSnapshotQueue() {
+        return new AnonymousQueue();
+    }
+
+    // Per-replica queue for the results of the stock reservations this replica requested
+    @Bean
+    public Queue stockReservationReplyQueue() {
+        return new AnonymousQueue();
+    }
+
     @Bean
     public Binding orderStatusBinding() {
         return BindingBuilder
@@ -69,6 +106,55 @@ public class RabbitMQConfig {
                 .with(PAYMENT_STATUS_ROUTING_KEY);
     }
 
+    @Bean
+    public Binding paymentRefundBinding() {
+        return BindingBuilder
+                .bind(paymentRefundQueue())
+                .to(orderExchange())
+                .with(PAYMENT_REFUND_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding orderStatusBroadcastBinding() {
+        return BindingBuilder
+                .bind(orderEventBroadcastQueue())
+                .to(orderExchange())
+                .with(ORDER_STATUS_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding orderStatusChangedBroadcastBinding() {
+        return BindingBuilder
+                .bind(orderEventBroadcastQueue())
+                .to(orderExchange())
+                .with(ORDER_STATUS_CHANGED_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding productChangedBinding() {
+        return BindingBuilder
+                .bind(productSnapshotQueue())
+                .to(productExchange())
+                .with(PRODUCT_CHANGED_ROUTING_KEY);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory paymentStatusBatchContainerFactory(
+            ConnectionFactory connectionFactory,
+            @Value("${order.payment-status.batch-size:250}") int batchSize,
+            @Value("${order.payment-status.receive-timeout-ms:100}") long receiveTimeout,
+            @Value("${order.payment-status.consumers:2}") int consumers) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize * 2);
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setConcurrentConsumers(consumers);
+        return factory;
+    }
+
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -80,6 +166,10 @@ public class RabbitMQConfig {
         template.setMessageConverter(messageConverter());
         return template;
     }
-}
-
 
+    @Bean
+    public MessageLatencyRecorder messageLatencyRecorder(MeterRegistry meterRegistry,
+            @Value("${messaging.latency.slowest-limit:10}") int slowestLimit) {
+        return new MessageLatencyRecorder(meterRegistry, slowestLimit);
+    }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.order.config;
+
+import com.ecommerce.order.entity.SnowflakeIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class SnowflakeConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnowflakeConfig.class);
+
+    // Every table holding snowflake ids; the primary key index makes each max a single lookup
+    private static final String MAX_STORED_ID = "SELECT GREATEST("
+            + "(SELECT MAX(order_id) FROM orders), (SELECT MAX(order_item_id) FROM order_items), "
+            + "(SELECT MAX(order_id) FROM orders_archive), (SELECT MAX(order_item_id) FROM order_items_archive))";
+
+    /**
+     * Shares its sequence with the entity id generator, which reads the same node id. Starts after the
+     * largest id stored by any replica, so a restart with the clock behind earlier ids cannot reissue them.
+     * Created once the schema is in place and before anything can generate an id.
+     */
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public SnowflakeIdGenerator.Node snowflakeNode(@Value("${order.node-id:}") String nodeId,
+            JdbcTemplate jdbcTemplate) {
+        SnowflakeIdGenerator.Node node = SnowflakeIdGenerator.forNode(SnowflakeIdGenerator.parseNodeId(nodeId));
+        Long maxStoredId = jdbcTemplate.queryForObject(MAX_STORED_ID, Long.class);
+        if (maxStoredId != null) {
+            node.advancePast(maxStoredId);
+            logger.info("Snowflake node {} continues after stored id {}", node.getNodeId(), maxStoredId);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.order.dto.SalesRollupDto;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.SalesRollup;
+import com.ecommerce.order.service.SalesRollupService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/orders/analytics")
+@Tag(name = "Order Analytics", description = "Pre-aggregated sales analytics API")
+public class AnalyticsController {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @GetMapping("/sales")
+    @Operation(summary = "Get sales rollups",
+            description = "Order count, revenue and units per hour or day and status, optionally for one product")
+    public ResponseEntity<List<SalesRollupDto>> getSalesRollups(
+            @RequestParam(defaultValue = "DAY") SalesRollup.Granularity granularity,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) Order.OrderStatus status) {
+        List<SalesRollupDto> rollups = salesRollupService.getRollups(granularity, from, to, productId, status);
+        return ResponseEntity.ok(rollups);
+    }
+
+    @PostMapping("/sales/rebuild")
+    @Operation(summary = "Rebuild sales rollups", description = "Recompute all rollups from the order history")
+    public ResponseEntity<String> rebuildSalesRollups() {
+        if (salesRollupService.rebuild()) {
+            return ResponseEntity.ok("Sales rollups rebuilt");
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("A rebuild is already running");
+    }
+}
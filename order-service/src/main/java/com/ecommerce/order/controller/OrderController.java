@@ -1,9 +1,17 @@
 package com.ecommerce.order.controller;
 
+import com.ecommerce.order.dto.BulkStatusUpdateRequest;
+import com.ecommerce.order.dto.BulkStatusUpdateResponse;
 import com.ecommerce.order.dto.CreateOrderRequest;
 import com.ecommerce.order.dto.OrderDto;
+import com.ecommerce.order.dto.OrderSearchCriteria;
+import com.ecommerce.order.dto.OrderSearchResponse;
 import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.service.IdempotencyKeyConflictException;
+import com.ecommerce.order.service.OrderIdempotencyService;
+import com.ecommerce.order.service.OrderRejectedException;
 import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.service.OrderStatusStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -13,11 +21,18 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/orders")
@@ -27,6 +42,12 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderIdempotencyService orderIdempotencyService;
+
+    @Autowired
+    private OrderStatusStreamService orderStatusStreamService;
+
     @GetMapping
     @Operation(summary = "Get all orders", description = "Retrieve all orders with optional pagination")
     public ResponseEntity<Page<OrderDto>> getAllOrders(
@@ -37,6 +58,24 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping(params = "fields")
+    @Operation(summary = "Get orders with selected fields",
+            description = "Retrieve a page of orders with only the comma-separated fields requested "
+                    + "(orderId, userId, orderDate, status, totalAmount, shippingAddress, billingAddress, notes, "
+                    + "orderItems); order lines are only loaded when orderItems is requested, and orderItems.<field> "
+                    + "(orderItemId, productId, quantity, price, productName, productDescription) limits the line "
+                    + "fields read")
+    public ResponseEntity<Page<Map<String, Object>>> getAllOrderFields(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(orderService.getAllOrders(fields, PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/all")
     @Operation(summary = "Get all orders without pagination", description = "Retrieve all orders as a list")
     public ResponseEntity<List<OrderDto>> getAllOrdersList() {
@@ -54,11 +93,51 @@ public class OrderController {
 
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get orders by user ID", description = "Retrieve all orders for a specific user")
-    public ResponseEntity<List<OrderDto>> getOrdersByUserId(@PathVariable Long userId) {
-        List<OrderDto> orders = orderService.getOrdersByUserId(userId);
+    public ResponseEntity<List<OrderDto>> getOrdersByUserId(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "true") boolean includeArchived) {
+        List<OrderDto> orders = orderService.getOrdersByUserId(userId, includeArchived);
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping(value = "/user/{userId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream order status changes",
+            description = "Server-Sent Events of status changes for a user's orders; resumes from Last-Event-ID")
+    public ResponseEntity<SseEmitter> streamOrderStatusChanges(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Optional<SseEmitter> emitter = orderStatusStreamService.subscribe(userId, lastEventId);
+        if (emitter.isPresent()) {
+            return ResponseEntity.ok(emitter.get());
+        } else {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search orders",
+            description = "Filter orders by user, statuses, date range and amount range, newest first, "
+                    + "paged with the returned cursor")
+    public ResponseEntity<OrderSearchResponse> searchOrders(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Set<Order.OrderStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        if (size < 1 || size > 200) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            OrderSearchCriteria criteria = new OrderSearchCriteria(userId, status, from, to, minAmount, maxAmount);
+            return ResponseEntity.ok(orderService.searchOrders(criteria, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/status/{status}")
     @Operation(summary = "Get orders by status", description = "Retrieve orders by their status")
     public ResponseEntity<List<OrderDto>> getOrdersByStatus(@PathVariable Order.OrderStatus status) {
@@ -83,10 +162,24 @@ public class OrderController {
     }
 
     @PostMapping
-    @Operation(summary = "Create order", description = "Create a new order")
-    public ResponseEntity<OrderDto> createOrder(@Valid @RequestBody CreateOrderRequest request) {
-        OrderDto createdOrder = orderService.createOrder(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+    @Operation(summary = "Create order",
+            description = "Create a new order; retries with the same Idempotency-Key return the original order")
+    public ResponseEntity<OrderDto> createOrder(@Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null && idempotencyKey.length() > 255) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            OrderDto createdOrder = idempotencyKey == null || idempotencyKey.isBlank()
+                    ? orderService.createOrder(request)
+                    : orderIdempotencyService.createOrder(idempotencyKey, request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+        } catch (IdempotencyKeyConflictException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (OrderRejectedException e) {
+            // Says which product was stale, so the client can refresh it and resubmit
+            return ResponseEntity.of(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage())).build();
+        }
     }
 
     @PutMapping("/{id}/status")
@@ -100,6 +193,16 @@ public class OrderController {
         return ResponseEntity.notFound().build();
     }
 
+    @PostMapping("/bulk/status")
+    @Operation(summary = "Bulk update order status",
+            description = "Move many orders to a target status; only orders in an allowed previous status are changed")
+    public ResponseEntity<BulkStatusUpdateResponse> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkStatusUpdateRequest request) {
+        BulkStatusUpdateResponse response = orderService.bulkUpdateOrderStatus(request.getOrderIds(),
+                request.getTargetStatus());
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Cancel order", description = "Cancel an order (only if in CREATED or CONFIRMED status)")
     public ResponseEntity<String> cancelOrder(@PathVariable Long id) {
@@ -0,0 +1,73 @@
+package com.ecommerce.order.controller;
+
+import com.ecommerce.order.dto.OrderExportJobDto;
+import com.ecommerce.order.dto.OrderExportRequest;
+import com.ecommerce.order.service.OrderExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/orders/exports")
+@Tag(name = "Order Exports", description = "Asynchronous bulk order export API")
+public class OrderExportController {
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @PostMapping
+    @Operation(summary = "Start an order export",
+            description = "Queue a gzip-compressed CSV or NDJSON export of the orders placed in [from, to)")
+    public ResponseEntity<OrderExportJobDto> submitExport(@Valid @RequestBody OrderExportRequest request) {
+        if (!request.getFrom().isBefore(request.getTo())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return orderExportService.submit(request)
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(job))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build());
+    }
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get export status",
+            description = "Status and progress of an export job; any replica answers for jobs run by another")
+    public ResponseEntity<OrderExportJobDto> getExport(@PathVariable String jobId) {
+        return orderExportService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{jobId}/download")
+    @Operation(summary = "Download an export",
+            description = "Download the compressed file of a completed export job. Files live on the replica "
+                    + "that ran the job and are unavailable while it is down")
+    public ResponseEntity<Resource> downloadExport(@PathVariable String jobId) {
+        Optional<OrderExportJobDto> job = orderExportService.getJob(jobId);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.get().getStatus() != OrderExportJobDto.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        Optional<Resource> file = orderExportService.getFile(jobId);
+        if (file.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(OrderExportService.fileName(jobId, job.get().getFormat())).build().toString())
+                .body(file.get());
+    }
+}
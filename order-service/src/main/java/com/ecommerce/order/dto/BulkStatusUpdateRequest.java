@@ -0,0 +1,42 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.Order;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BulkStatusUpdateRequest {
+    @NotEmpty
+    @Size(max = 100000)
+    private List<Long> orderIds;
+
+    @NotNull
+    private Order.OrderStatus targetStatus;
+
+    public BulkStatusUpdateRequest() {
+    }
+
+    public BulkStatusUpdateRequest(List<Long> orderIds, Order.OrderStatus targetStatus) {
+        this.orderIds = orderIds;
+        this.targetStatus = targetStatus;
+    }
+
+    // Getters and Setters
+    public List<Long> getOrderIds() {
+        return orderIds;
+    }
+
+    public void setOrderIds(List<Long> orderIds) {
+        this.orderIds = orderIds;
+    }
+
+    public Order.OrderStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public void setTargetStatus(Order.OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+}
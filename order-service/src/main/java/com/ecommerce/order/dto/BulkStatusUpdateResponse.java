@@ -0,0 +1,102 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.Order;
+
+import java.util.List;
+
+public class BulkStatusUpdateResponse {
+    private Order.OrderStatus targetStatus;
+    private int requested;
+    private int updated;
+    private List<Result> results;
+
+    public BulkStatusUpdateResponse() {
+    }
+
+    public BulkStatusUpdateResponse(Order.OrderStatus targetStatus, int requested, int updated,
+            List<Result> results) {
+        this.targetStatus = targetStatus;
+        this.requested = requested;
+        this.updated = updated;
+        this.results = results;
+    }
+
+    // Getters and Setters
+    public Order.OrderStatus getTargetStatus() {
+        return targetStatus;
+    }
+
+    public void setTargetStatus(Order.OrderStatus targetStatus) {
+        this.targetStatus = targetStatus;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public void setResults(List<Result> results) {
+        this.results = results;
+    }
+
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        INVALID_TRANSITION
+    }
+
+    public static class Result {
+        private Long orderId;
+        private Outcome outcome;
+        private Order.OrderStatus previousStatus;
+
+        public Result() {
+        }
+
+        public Result(Long orderId, Outcome outcome, Order.OrderStatus previousStatus) {
+            this.orderId = orderId;
+            this.outcome = outcome;
+            this.previousStatus = previousStatus;
+        }
+
+        // Getters and setters
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public void setOutcome(Outcome outcome) {
+            this.outcome = outcome;
+        }
+
+        public Order.OrderStatus getPreviousStatus() {
+            return previousStatus;
+        }
+
+        public void setPreviousStatus(Order.OrderStatus previousStatus) {
+            this.previousStatus = previousStatus;
+        }
+    }
+}
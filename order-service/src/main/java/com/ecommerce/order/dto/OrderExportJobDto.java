@@ -0,0 +1,113 @@
+package com.ecommerce.order.dto;
+
+import java.time.LocalDateTime;
+
+public class OrderExportJobDto {
+    private String jobId;
+    private Status status;
+    private OrderExportRequest.Format format;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long exportedOrders;
+    private long totalOrders;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+    private Long fileSizeBytes;
+    private String error;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    public OrderExportJobDto() {
+    }
+
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public OrderExportRequest.Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(OrderExportRequest.Format format) {
+        this.format = format;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public long getExportedOrders() {
+        return exportedOrders;
+    }
+
+    public void setExportedOrders(long exportedOrders) {
+        this.exportedOrders = exportedOrders;
+    }
+
+    public long getTotalOrders() {
+        return totalOrders;
+    }
+
+    public void setTotalOrders(long totalOrders) {
+        this.totalOrders = totalOrders;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Long getFileSizeBytes() {
+        return fileSizeBytes;
+    }
+
+    public void setFileSizeBytes(Long fileSizeBytes) {
+        this.fileSizeBytes = fileSizeBytes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
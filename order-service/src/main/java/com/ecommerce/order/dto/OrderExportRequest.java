@@ -0,0 +1,54 @@
+package com.ecommerce.order.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+public class OrderExportRequest {
+    @NotNull
+    private LocalDateTime from;
+
+    @NotNull
+    private LocalDateTime to;
+
+    @NotNull
+    private Format format = Format.CSV;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public OrderExportRequest() {
+    }
+
+    public OrderExportRequest(LocalDateTime from, LocalDateTime to, Format format) {
+        this.from = from;
+        this.to = to;
+        this.format = format;
+    }
+
+    // Getters and Setters
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+}
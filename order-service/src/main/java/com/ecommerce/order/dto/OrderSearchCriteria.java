@@ -0,0 +1,78 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+public class OrderSearchCriteria {
+    private Long userId;
+    private Set<Order.OrderStatus> statuses;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+
+    public OrderSearchCriteria() {
+    }
+
+    public OrderSearchCriteria(Long userId, Set<Order.OrderStatus> statuses, LocalDateTime from, LocalDateTime to,
+            BigDecimal minAmount, BigDecimal maxAmount) {
+        this.userId = userId;
+        this.statuses = statuses;
+        this.from = from;
+        this.to = to;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    // Getters and Setters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Set<Order.OrderStatus> getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(Set<Order.OrderStatus> statuses) {
+        this.statuses = statuses;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+
+    public void setMinAmount(BigDecimal minAmount) {
+        this.minAmount = minAmount;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ecommerce.order.dto;
+
+import java.util.List;
+
+public class OrderSearchResponse {
+    private List<OrderDto> orders;
+    private String nextCursor;
+    private Long totalCount;
+    private boolean totalCountCapped;
+
+    public OrderSearchResponse() {
+    }
+
+    public OrderSearchResponse(List<OrderDto> orders, String nextCursor, Long totalCount, boolean totalCountCapped) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+        this.totalCount = totalCount;
+        this.totalCountCapped = totalCountCapped;
+    }
+
+    // Getters and Setters
+    public List<OrderDto> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<OrderDto> orders) {
+        this.orders = orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(Long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public boolean isTotalCountCapped() {
+        return totalCountCapped;
+    }
+
+    public void setTotalCountCapped(boolean totalCountCapped) {
+        this.totalCountCapped = totalCountCapped;
+    }
+}
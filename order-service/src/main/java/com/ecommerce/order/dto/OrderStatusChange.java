@@ -0,0 +1,53 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.Order;
+
+public class OrderStatusChange {
+    private Long orderId;
+    private Long userId;
+    private Order.OrderStatus oldStatus;
+    private Order.OrderStatus newStatus;
+
+    public OrderStatusChange() {
+    }
+
+    public OrderStatusChange(Long orderId, Long userId, Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+    }
+
+    // Getters and Setters
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Order.OrderStatus getOldStatus() {
+        return oldStatus;
+    }
+
+    public void setOldStatus(Order.OrderStatus oldStatus) {
+        this.oldStatus = oldStatus;
+    }
+
+    public Order.OrderStatus getNewStatus() {
+        return newStatus;
+    }
+
+    public void setNewStatus(Order.OrderStatus newStatus) {
+        this.newStatus = newStatus;
+    }
+}
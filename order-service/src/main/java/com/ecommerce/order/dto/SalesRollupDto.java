@@ -0,0 +1,88 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.SalesRollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class SalesRollupDto {
+    private SalesRollup.Granularity granularity;
+    private LocalDateTime bucketStart;
+    private Order.OrderStatus status;
+    private Long productId;
+    private Long orderCount;
+    private BigDecimal revenue;
+    private Long units;
+
+    public SalesRollupDto() {
+    }
+
+    public SalesRollupDto(SalesRollup.Granularity granularity, LocalDateTime bucketStart, Order.OrderStatus status,
+            Long productId, Long orderCount, BigDecimal revenue, Long units) {
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.status = status;
+        this.productId = productId;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+        this.units = units;
+    }
+
+    // Getters and Setters
+    public SalesRollup.Granularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(SalesRollup.Granularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public Long getUnits() {
+        return units;
+    }
+
+    public void setUnits(Long units) {
+        this.units = units;
+    }
+}
@@ -0,0 +1,61 @@
+package com.ecommerce.order.dto;
+
+public class StockReservationReply {
+    private String orderId;
+    private Long orderItemId;
+    private Long productId;
+    private Integer quantity;
+    private boolean success;
+
+    public StockReservationReply() {
+    }
+
+    public StockReservationReply(String orderId, Long orderItemId, Long productId, Integer quantity,
+            boolean success) {
+        this.orderId = orderId;
+        this.orderItemId = orderItemId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.success = success;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public Long getOrderItemId() {
+        return orderItemId;
+    }
+
+    public void setOrderItemId(Long orderItemId) {
+        this.orderItemId = orderItemId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
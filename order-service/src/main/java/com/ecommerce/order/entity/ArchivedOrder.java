@@ -0,0 +1,79 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A finished order moved out of the orders table by the archival job. Read-only.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_user_id", columnList = "user_id"),
+        @Index(name = "idx_orders_archive_order_date", columnList = "order_date")
+})
+public class ArchivedOrder {
+    @Id
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Order.OrderStatus status;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    private String shippingAddress;
+    private String billingAddress;
+    private String notes;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    public ArchivedOrder() {
+    }
+
+    // Getters
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+
+    public String getBillingAddress() {
+        return billingAddress;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+}
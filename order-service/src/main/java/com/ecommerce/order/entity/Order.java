@@ -7,13 +7,19 @@ import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"),
+        @Index(name = "idx_orders_user_id_order_date", columnList = "user_id, order_date, order_id"),
+        @Index(name = "idx_orders_order_date_order_id", columnList = "order_date, order_id")
+})
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long orderId;
 
     @NotNull
@@ -129,7 +135,19 @@ public class Order {
         SHIPPED,
         DELIVERED,
         CANCELLED,
-        PAID
+        PAID;
+
+        // Statuses an order must currently be in for a guarded transition to this status
+        public Set<OrderStatus> allowedPredecessors() {
+            return switch (this) {
+                case CREATED -> EnumSet.noneOf(OrderStatus.class);
+                case CONFIRMED -> EnumSet.of(CREATED);
+                case PAID -> EnumSet.of(CREATED, CONFIRMED);
+                case SHIPPED -> EnumSet.of(CONFIRMED, PAID);
+                case DELIVERED -> EnumSet.of(SHIPPED);
+                case CANCELLED -> EnumSet.of(CREATED, CONFIRMED);
+            };
+        }
     }
 }
 
@@ -11,7 +11,7 @@ import java.math.BigDecimal;
 @Table(name = "order_items")
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long orderItemId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -35,6 +35,10 @@ public class OrderItem {
     private String productName;
     private String productDescription;
 
+    // Set when stock could not be reserved for this line, so cancelling the order does not release it
+    @Column(nullable = false, columnDefinition = "boolean not null default false")
+    private boolean stockUnavailable;
+
     public OrderItem() {
     }
 
@@ -101,6 +105,12 @@ public class OrderItem {
     public void setProductDescription(String productDescription) {
         this.productDescription = productDescription;
     }
-}
 
+    public boolean isStockUnavailable() {
+        return stockUnavailable;
+    }
 
+    public void setStockUnavailable(boolean stockUnavailable) {
+        this.stockUnavailable = stockUnavailable;
+    }
+}
@@ -0,0 +1,142 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Pre-aggregated order totals per time bucket and status. Rows with productId 0 hold order-level
+ * totals; other rows hold the totals of one product's order lines.
+ */
+@Entity
+@Table(name = "order_sales_rollups")
+public class SalesRollup {
+    public static final long ALL_PRODUCTS = 0L;
+
+    @EmbeddedId
+    private Key id;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private Long units;
+
+    public SalesRollup() {
+    }
+
+    // Getters and Setters
+    public Key getId() {
+        return id;
+    }
+
+    public void setId(Key id) {
+        this.id = id;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public Long getUnits() {
+        return units;
+    }
+
+    public void setUnits(Long units) {
+        this.units = units;
+    }
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    @Embeddable
+    public static class Key implements Serializable {
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 10)
+        private Granularity granularity;
+
+        @Column(nullable = false)
+        private LocalDateTime bucketStart;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 20)
+        private Order.OrderStatus status;
+
+        @Column(nullable = false)
+        private Long productId;
+
+        public Key() {
+        }
+
+        // Getters and setters
+        public Granularity getGranularity() {
+            return granularity;
+        }
+
+        public void setGranularity(Granularity granularity) {
+            this.granularity = granularity;
+        }
+
+        public LocalDateTime getBucketStart() {
+            return bucketStart;
+        }
+
+        public void setBucketStart(LocalDateTime bucketStart) {
+            this.bucketStart = bucketStart;
+        }
+
+        public Order.OrderStatus getStatus() {
+            return status;
+        }
+
+        public void setStatus(Order.OrderStatus status) {
+            this.status = status;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return granularity == other.granularity && Objects.equals(bucketStart, other.bucketStart)
+                    && status == other.status && Objects.equals(productId, other.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(granularity, bucketStart, status, productId);
+        }
+    }
+}
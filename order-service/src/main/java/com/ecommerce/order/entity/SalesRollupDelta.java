@@ -0,0 +1,78 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A change to one sales rollup row, appended in the transaction of the order change that caused it
+ * and folded into order_sales_rollups later. Only written and read with native SQL; mapped so the
+ * table is created with the rest of the schema.
+ */
+@Entity
+@Table(name = "order_sales_rollup_deltas")
+public class SalesRollupDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private SalesRollup.Granularity granularity;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Order.OrderStatus status;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(nullable = false)
+    private Long units;
+
+    public SalesRollupDelta() {
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public SalesRollup.Granularity getGranularity() {
+        return granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Long getOrderCount() {
+        return orderCount;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public Long getUnits() {
+        return units;
+    }
+}
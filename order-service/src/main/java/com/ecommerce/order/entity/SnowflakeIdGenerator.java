@@ -0,0 +1,125 @@
+package com.ecommerce.order.entity;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time-ordered ids unique across replicas: 41 bits of milliseconds since {@link #EPOCH_MILLIS},
+ * then 6 bits of node id and 6 bits of per-millisecond sequence. The ids fit in 53 bits so they
+ * stay exact as JavaScript numbers in the frontend.
+ */
+public class SnowflakeIdGenerator implements IdentifierGenerator {
+
+    // Read from spring.jpa.properties, so each replica must be given its own value
+    public static final String NODE_ID_SETTING = "order.node-id";
+
+    // 2024-01-01T00:00:00Z
+    public static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 6;
+
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // How far bursts (or a clock stepping back) may push issued ids ahead of the wall clock
+    private static final long MAX_AHEAD_MILLIS = 1000;
+
+    // Generators for every entity on a node must share one sequence
+    private static final Map<Integer, Node> NODES = new ConcurrentHashMap<>();
+
+    private final Node node;
+
+    public SnowflakeIdGenerator(SnowflakeId config, Member member, CustomIdGeneratorCreationContext context) {
+        Object nodeId = context.getServiceRegistry().getService(ConfigurationService.class)
+                .getSettings().get(NODE_ID_SETTING);
+        this.node = forNode(parseNodeId(nodeId != null ? nodeId.toString() : null));
+    }
+
+    /**
+     * Parses a configured node id. There is deliberately no default: replicas sharing a node id would
+     * generate colliding ids.
+     */
+    public static int parseNodeId(String nodeId) {
+        if (nodeId == null || nodeId.isBlank()) {
+            throw new IllegalStateException(NODE_ID_SETTING + " is not set; give every replica its own node id "
+                    + "between 0 and " + MAX_NODE_ID + " (ORDER_NODE_ID)");
+        }
+        return Integer.parseInt(nodeId.trim());
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return node.nextId();
+    }
+
+    public static Node forNode(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        return NODES.computeIfAbsent(nodeId, Node::new);
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static final class Node {
+
+        private final int nodeId;
+
+        // Last issued (elapsed millis << SEQUENCE_BITS | sequence)
+        private final AtomicLong state = new AtomicLong();
+
+        private Node(int nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public int getNodeId() {
+            return nodeId;
+        }
+
+        /**
+         * Makes every later id larger than the given one. Called at startup with the largest id already
+         * stored, so ids issued before a restart are not issued again even if the clock is now behind them.
+         */
+        public void advancePast(long id) {
+            long issued = ((id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (id & SEQUENCE_MASK);
+            state.accumulateAndGet(issued, Math::max);
+        }
+
+        public long nextId() {
+            while (true) {
+                long last = state.get();
+                long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+                if ((last >>> SEQUENCE_BITS) - (now >>> SEQUENCE_BITS) > MAX_AHEAD_MILLIS) {
+                    // Too far ahead to keep borrowing from the future; wait for the clock to catch up
+                    LockSupport.parkNanos(1_000_000);
+                    continue;
+                }
+                // Past the last millisecond start a new sequence; otherwise increment, which rolls an
+                // exhausted sequence into the next millisecond and keeps ids increasing if the clock
+                // steps back
+                long next = now > last ? now : last + 1;
+                if (state.compareAndSet(last, next)) {
+                    long millis = next >>> SEQUENCE_BITS;
+                    return (millis << (NODE_BITS + SEQUENCE_BITS))
+                            | ((long) nodeId << SEQUENCE_BITS)
+                            | (next & SEQUENCE_MASK);
+                }
+            }
+        }
+    }
+}
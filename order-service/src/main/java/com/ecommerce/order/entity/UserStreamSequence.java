@@ -0,0 +1,30 @@
+package com.ecommerce.order.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * The last status stream sequence number handed out for a user. Every replica numbers a user's events
+ * from this row, so a stream can resume on any replica. Only written and read with native SQL; mapped
+ * so the table is created with the rest of the schema.
+ */
+@Entity
+@Table(name = "order_user_stream_sequences")
+public class UserStreamSequence {
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long seq;
+
+    public UserStreamSequence() {
+    }
+
+    // Getters
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+}
@@ -0,0 +1,49 @@
+package com.ecommerce.order.messaging;
+
+import com.ecommerce.common.messaging.MessageLatencyRecorder;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.UUID;
+
+/**
+ * Stamps outgoing messages with a correlation id and the publish time so that
+ * consumers can measure broker dwell and end-to-end latency.
+ */
+public final class MessageTracing {
+
+    public static final String PUBLISHED_AT_HEADER = MessageLatencyRecorder.PUBLISHED_AT_HEADER;
+
+    // Lets a replica recognise its own events when they come back through a broadcast queue
+    public static final String ORIGIN_HEADER = "x-origin-instance";
+    public static final String INSTANCE_ID = UUID.randomUUID().toString();
+
+    // The event's number in its user's status stream, so every replica streams it under the same id
+    public static final String STREAM_SEQUENCE_HEADER = "x-stream-sequence";
+
+    private MessageTracing() {
+    }
+
+    public static String newCorrelationId() {
+        return UUID.randomUUID().toString();
+    }
+
+    public static MessagePostProcessor stamp(String correlationId) {
+        return message -> {
+            MessageProperties properties = message.getMessageProperties();
+            properties.setCorrelationId(correlationId);
+            properties.setHeader(PUBLISHED_AT_HEADER, System.currentTimeMillis());
+            properties.setHeader(ORIGIN_HEADER, INSTANCE_ID);
+            return message;
+        };
+    }
+
+    public static MessagePostProcessor stamp(String correlationId, long streamSequence) {
+        MessagePostProcessor stamp = stamp(correlationId);
+        return message -> {
+            stamp.postProcessMessage(message).getMessageProperties().setHeader(STREAM_SEQUENCE_HEADER,
+                    streamSequence);
+            return message;
+        };
+    }
+}
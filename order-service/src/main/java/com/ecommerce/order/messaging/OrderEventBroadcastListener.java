@@ -0,0 +1,98 @@
+package com.ecommerce.order.messaging;
+
+import com.ecommerce.common.messaging.MessageLatencyRecorder;
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.OrderStatusChange;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.SnowflakeIdGenerator;
+import com.ecommerce.order.service.OrderStatusCounters;
+import com.ecommerce.order.service.OrderStatusStreamService;
+import com.ecommerce.order.service.PaymentDeadlineService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Applies order events published by other replicas to this replica's in-memory state and
+ * status streams.
+ * Events this replica published itself were already applied locally and are skipped.
+ */
+@Component
+public class OrderEventBroadcastListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventBroadcastListener.class);
+
+    private static final String BROADCAST_QUEUE = "order.events.broadcast";
+
+    @Autowired
+    private OrderStatusCounters orderStatusCounters;
+
+    @Autowired
+    private OrderStatusStreamService orderStatusStreamService;
+
+    @Autowired
+    private PaymentDeadlineService paymentDeadlineService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MessageLatencyRecorder latencyRecorder;
+
+    @RabbitListener(queues = "#{orderEventBroadcastQueue.name}")
+    public void handleOrderEvent(String message,
+            @Header(AmqpHeaders.RECEIVED_ROUTING_KEY) String routingKey,
+            @Header(name = MessageTracing.ORIGIN_HEADER, required = false) String origin,
+            @Header(name = AmqpHeaders.CORRELATION_ID, required = false) String correlationId,
+            @Header(name = MessageTracing.PUBLISHED_AT_HEADER, required = false) Long publishedAt,
+            @Header(name = MessageTracing.STREAM_SEQUENCE_HEADER, required = false) Long streamSequence) {
+        if (MessageTracing.INSTANCE_ID.equals(origin)) {
+            return;
+        }
+        long receivedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            if (RabbitMQConfig.ORDER_STATUS_CHANGED_ROUTING_KEY.equals(routingKey)) {
+                OrderStatusChange change = new OrderStatusChange(
+                        event.path("orderId").asLong(),
+                        event.path("userId").asLong(),
+                        Order.OrderStatus.valueOf(event.path("oldStatus").asText()),
+                        Order.OrderStatus.valueOf(event.path("newStatus").asText()));
+                orderStatusCounters.applyRemoteTransition(change.getOldStatus(), change.getNewStatus());
+                paymentDeadlineService.onStatusChange(change);
+                // Unnumbered when the publishing replica could not reserve a sequence; streams skip it
+                if (streamSequence != null) {
+                    orderStatusStreamService.publish(streamSequence, change);
+                }
+            } else if ("order.created".equals(event.path("eventType").asText())) {
+                orderStatusCounters.applyRemoteCreated(Order.OrderStatus.valueOf(event.path("status").asText()));
+                // Tracked here too so this replica can cancel it if the creating replica goes away
+                // Events from replicas not yet sending the order date fall back to the time in the id
+                long orderId = event.path("orderId").asLong();
+                LocalDateTime orderDate = event.hasNonNull("orderDate")
+                        ? objectMapper.convertValue(event.get("orderDate"), LocalDateTime.class)
+                        : LocalDateTime.ofInstant(Instant.ofEpochMilli(SnowflakeIdGenerator.timestampOf(orderId)),
+                                ZoneId.systemDefault());
+                paymentDeadlineService.register(orderId, orderDate);
+            }
+            outcome = "success";
+        } catch (Exception e) {
+            logger.error("Error applying broadcast order event: {}", e.getMessage());
+        } finally {
+            latencyRecorder.record(BROADCAST_QUEUE, correlationId, publishedAt, receivedAt,
+                    System.nanoTime() - start, outcome);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecommerce.order.messaging;
+
+import com.ecommerce.common.messaging.MessageLatencyRecorder;
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.OrderStatusChange;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.service.OrderService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains payment outcomes published by payment-service in batches and applies
+ * the resulting PAID / CANCELLED transitions with one guarded update per batch.
+ * A payment that completes after its order was cancelled is not dropped; a refund is requested.
+ */
+@Component
+public class PaymentStatusListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentStatusListener.class);
+
+    private static final String PAYMENT_COMPLETED_EVENT = "order.payment.completed";
+    private static final String PAYMENT_FAILED_EVENT = "order.payment.failed";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MessageLatencyRecorder latencyRecorder;
+
+    @RabbitListener(queues = RabbitMQConfig.PAYMENT_STATUS_QUEUE,
+            containerFactory = "paymentStatusBatchContainerFactory")
+    public void handlePaymentStatusBatch(List<Message> messages) {
+        long receivedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            // Later messages for the same order win; re-delivered duplicates are no-ops
+            // because the update is guarded by the expected previous status
+            Map<Long, Order.OrderStatus> targetStatuses = new LinkedHashMap<>();
+            Map<Long, OrderService.PaymentRefundMessage> completedPayments = new HashMap<>();
+            for (Message message : messages) {
+                parse(message, targetStatuses, completedPayments);
+            }
+
+            List<OrderStatusChange> changes = orderService.applyStatusTransitions(targetStatuses);
+
+            // A completed payment that did not make its order PAID may have come after the order was cancelled
+            changes.forEach(change -> completedPayments.remove(change.getOrderId()));
+            completedPayments.keySet().removeIf(orderId -> targetStatuses.get(orderId) != Order.OrderStatus.PAID);
+            if (!completedPayments.isEmpty()) {
+                orderService.requestRefundsForCancelledOrders(new ArrayList<>(completedPayments.values()));
+            }
+            outcome = "success";
+            logger.info("Applied {} payment status changes from a batch of {} messages",
+                    changes.size(), messages.size());
+        } finally {
+            long handlerNanos = System.nanoTime() - start;
+            for (Message message : messages) {
+                MessageProperties properties = message.getMessageProperties();
+                Object publishedAt = properties.getHeader(MessageTracing.PUBLISHED_AT_HEADER);
+                latencyRecorder.record(RabbitMQConfig.PAYMENT_STATUS_QUEUE, properties.getCorrelationId(),
+                        publishedAt instanceof Number ? ((Number) publishedAt).longValue() : null,
+                        receivedAt, handlerNanos, outcome);
+            }
+        }
+    }
+
+    private void parse(Message message, Map<Long, Order.OrderStatus> targetStatuses,
+            Map<Long, OrderService.PaymentRefundMessage> completedPayments) {
+        try {
+            JsonNode event = objectMapper.readTree(message.getBody());
+            String eventType = event.path("EventType").asText();
+            JsonNode orderId = event.path("Data").path("OrderId");
+            if (!orderId.canConvertToLong()) {
+                logger.warn("Ignoring payment status message without an order id: {}", eventType);
+                return;
+            }
+
+            if (PAYMENT_COMPLETED_EVENT.equals(eventType)) {
+                targetStatuses.put(orderId.asLong(), Order.OrderStatus.PAID);
+                JsonNode data = event.path("Data");
+                completedPayments.put(orderId.asLong(), new OrderService.PaymentRefundMessage(orderId.asLong(),
+                        data.path("PaymentId").canConvertToLong() ? data.path("PaymentId").asLong() : null,
+                        data.path("UserId").canConvertToLong() ? data.path("UserId").asLong() : null,
+                        data.path("Amount").isNumber() ? data.path("Amount").decimalValue() : null));
+            } else if (PAYMENT_FAILED_EVENT.equals(eventType)) {
+                targetStatuses.put(orderId.asLong(), Order.OrderStatus.CANCELLED);
+            } else {
+                logger.debug("Ignoring payment event {} for order {}", eventType, orderId.asLong());
+            }
+        } catch (Exception e) {
+            logger.error("Skipping unreadable payment status message: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.ecommerce.order.messaging;
+
+import com.ecommerce.order.service.ProductSnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Feeds the local product snapshot. Change events and snapshot pages share this replica's queue,
+ * so they are applied in the order they were sent.
+ */
+@Component
+public class ProductEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductEventListener.class);
+
+    @Autowired
+    private ProductSnapshot productSnapshot;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @RabbitListener(queues = "#{productSnapshotQueue.name}")
+    public void handleProductEvent(String message) {
+        try {
+            JsonNode event = objectMapper.readTree(message);
+            if (event.has("requestId")) {
+                Map<Long, ProductSnapshot.ProductState> page = new HashMap<>();
+                for (JsonNode product : event.path("products")) {
+                    page.put(product.path("productId").asLong(), toState(product));
+                }
+                productSnapshot.applySnapshotPage(event.path("requestId").asText(), page,
+                        event.path("last").asBoolean());
+            } else {
+                productSnapshot.applyChange(event.path("productId").asLong(), toState(event),
+                        event.path("instanceId").asText(), event.path("sequence").asLong());
+            }
+        } catch (Exception e) {
+            logger.error("Error applying product event: {}", e.getMessage());
+        }
+    }
+
+    private ProductSnapshot.ProductState toState(JsonNode product) {
+        return new ProductSnapshot.ProductState(
+                product.path("price").isNull() ? null : product.path("price").decimalValue(),
+                product.path("stock").asInt(),
+                product.path("deleted").asBoolean(),
+                product.path("updatedAt").asLong(),
+                product.path("version").asLong());
+    }
+}
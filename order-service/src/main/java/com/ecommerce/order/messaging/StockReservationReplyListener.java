@@ -0,0 +1,53 @@
+package com.ecommerce.order.messaging;
+
+import com.ecommerce.common.messaging.MessageLatencyRecorder;
+import com.ecommerce.order.dto.StockReservationReply;
+import com.ecommerce.order.service.StockReservationAggregator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * Receives per-line stock reservation results sent back by product-service.
+ */
+@Component
+public class StockReservationReplyListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationReplyListener.class);
+
+    private static final String REPLY_QUEUE = "order.stock.reservation.reply";
+
+    @Autowired
+    private StockReservationAggregator stockReservationAggregator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MessageLatencyRecorder latencyRecorder;
+
+    @RabbitListener(queues = "#{stockReservationReplyQueue.name}",
+            concurrency = "${order.stock-reservation.consumers:2}")
+    public void handleReservationReply(String message,
+            @Header(name = AmqpHeaders.CORRELATION_ID, required = false) String correlationId,
+            @Header(name = MessageTracing.PUBLISHED_AT_HEADER, required = false) Long publishedAt) {
+        long receivedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            StockReservationReply reply = objectMapper.readValue(message, StockReservationReply.class);
+            stockReservationAggregator.onReply(reply);
+            outcome = reply.isSuccess() ? "success" : "rejected";
+        } catch (Exception e) {
+            logger.error("Error handling stock reservation reply: {}", e.getMessage(), e);
+        } finally {
+            latencyRecorder.record(REPLY_QUEUE, correlationId, publishedAt, receivedAt,
+                    System.nanoTime() - start, outcome);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.ArchivedOrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedOrderItemRepository extends JpaRepository<ArchivedOrderItem, Long> {
+
+    List<ArchivedOrderItem> findByOrderIdIn(Collection<Long> orderIds);
+}
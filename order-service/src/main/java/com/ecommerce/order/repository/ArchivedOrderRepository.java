@@ -0,0 +1,81 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.ArchivedOrder;
+import com.ecommerce.order.entity.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    List<ArchivedOrder> findByUserId(Long userId);
+
+    @Query("SELECT o FROM ArchivedOrder o WHERE o.orderDate BETWEEN :startDate AND :endDate")
+    List<ArchivedOrder> findOrdersBetweenDates(@Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT COUNT(o) FROM ArchivedOrder o WHERE o.orderDate >= :from AND o.orderDate < :to")
+    long countOrdersInRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Same row shape as OrderRepository.streamExportRows
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.orderId, o.userId, o.orderDate, o.status, o.totalAmount, "
+            + "i.orderItemId, i.productId, i.productName, i.quantity, i.price "
+            + "FROM ArchivedOrder o LEFT JOIN ArchivedOrderItem i ON i.orderId = o.orderId "
+            + "WHERE o.orderDate >= :from AND o.orderDate < :to ORDER BY o.orderDate, o.orderId")
+    Stream<Object[]> streamExportRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    long countByStatus(Order.OrderStatus status);
+
+    @Query("SELECT o.status, COUNT(o) FROM ArchivedOrder o GROUP BY o.status")
+    List<Object[]> countGroupedByStatus();
+
+    // Rows locked by another archiver (or a concurrent writer) are skipped rather than waited on
+    @Query(value = "SELECT order_id FROM orders WHERE status IN (:statuses) AND order_date < :cutoff "
+            + "ORDER BY order_date LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockArchivableOrderIds(@Param("statuses") Collection<String> statuses,
+            @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO order_items_archive "
+            + "(order_item_id, order_id, product_id, quantity, price, product_name, product_description) "
+            + "SELECT order_item_id, order_id, product_id, quantity, price, product_name, product_description "
+            + "FROM order_items WHERE order_id IN (:orderIds)", nativeQuery = true)
+    int copyItemsToArchive(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO orders_archive "
+            + "(order_id, user_id, order_date, status, total_amount, shipping_address, billing_address, notes, "
+            + "archived_at) "
+            + "SELECT order_id, user_id, order_date, status, total_amount, shipping_address, billing_address, "
+            + "notes, :archivedAt FROM orders WHERE order_id IN (:orderIds)", nativeQuery = true)
+    int copyOrdersToArchive(@Param("orderIds") Collection<Long> orderIds,
+            @Param("archivedAt") LocalDateTime archivedAt);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM order_items WHERE order_id IN (:orderIds)", nativeQuery = true)
+    int deleteHotItems(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM orders WHERE order_id IN (:orderIds)", nativeQuery = true)
+    int deleteHotOrders(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Claims a key, or re-claims it if the previous claim has expired. Returns 0 when a live claim
+     * already exists; a concurrent claim in flight makes this wait until that transaction finishes.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO order_idempotency_keys (idempotency_key, request_hash, created_at, expires_at) "
+            + "VALUES (:key, :requestHash, :createdAt, :expiresAt) "
+            + "ON CONFLICT (idempotency_key) DO UPDATE SET request_hash = EXCLUDED.request_hash, "
+            + "order_id = NULL, created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at "
+            + "WHERE order_idempotency_keys.expires_at < EXCLUDED.created_at", nativeQuery = true)
+    int tryClaim(@Param("key") String key, @Param("requestHash") String requestHash,
+            @Param("createdAt") LocalDateTime createdAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyKey k SET k.orderId = :orderId WHERE k.idempotencyKey = :key")
+    int assignOrder(@Param("key") String key, @Param("orderId") Long orderId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
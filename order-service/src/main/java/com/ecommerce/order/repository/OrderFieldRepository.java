@@ -0,0 +1,22 @@
+package com.ecommerce.order.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface OrderFieldRepository {
+
+    /**
+     * Returns a page of orders ordered by id, selecting only the given order attributes. Each row
+     * maps attribute name to value, in the order the attributes were given. Never joins the items.
+     */
+    List<Map<String, Object>> findFields(List<String> fields, Pageable pageable);
+
+    /**
+     * Returns every line of the given orders ordered by line id, selecting only the given line attributes.
+     * Each row maps orderId and then the attributes, in the order they were given, to their values.
+     */
+    List<Map<String, Object>> findItemFields(Collection<Long> orderIds, List<String> fields);
+}
@@ -0,0 +1,80 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.OrderItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class OrderFieldRepositoryImpl implements OrderFieldRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFields(List<String> fields, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Order> order = query.from(Order.class);
+
+        List<Selection<?>> selections = fields.stream()
+                .map(field -> order.get(field).alias(field))
+                .collect(Collectors.toList());
+        query.multiselect(selections)
+                .orderBy(cb.asc(order.get("orderId")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList()
+                .stream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (String field : fields) {
+                        row.put(field, tuple.get(field));
+                    }
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Map<String, Object>> findItemFields(Collection<Long> orderIds, List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<OrderItem> item = query.from(OrderItem.class);
+
+        // The order id is read from the line's foreign key, without joining the orders
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(item.get("order").get("orderId").alias("orderId"));
+        fields.forEach(field -> selections.add(item.get(field).alias(field)));
+        query.multiselect(selections)
+                .where(item.get("order").get("orderId").in(orderIds))
+                .orderBy(cb.asc(item.get("orderItemId")));
+
+        return entityManager.createQuery(query)
+                .getResultList()
+                .stream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("orderId", tuple.get("orderId"));
+                    for (String field : fields) {
+                        row.put(field, tuple.get(field));
+                    }
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -4,15 +4,22 @@ import com.ecommerce.order.entity.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderSearchRepository, OrderFieldRepository {
 
     List<Order> findByUserId(Long userId);
 
@@ -30,6 +37,85 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     Long countByStatus(@Param("status") Order.OrderStatus status);
-}
 
+    @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
+    List<Object[]> countGroupedByStatus();
+
+    @Query("SELECT COUNT(o) FROM Order o WHERE o.orderDate >= :from AND o.orderDate < :to")
+    long countOrdersInRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Scalar rows, one per order line, read through a server-side cursor; must be consumed in a transaction
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.orderId, o.userId, o.orderDate, o.status, o.totalAmount, "
+            + "i.orderItemId, i.productId, i.productName, i.quantity, i.price "
+            + "FROM Order o LEFT JOIN o.orderItems i "
+            + "WHERE o.orderDate >= :from AND o.orderDate < :to ORDER BY o.orderDate, o.orderId")
+    Stream<Object[]> streamExportRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT o.orderId, o.orderDate FROM Order o WHERE o.status IN :statuses AND o.orderDate >= :from")
+    List<Object[]> findOrderDatesByStatusInAndOrderDateFrom(@Param("statuses") Collection<Order.OrderStatus> statuses,
+            @Param("from") LocalDateTime from);
+
+    @Query("SELECT o.orderId, o.status FROM Order o WHERE o.orderId IN :orderIds")
+    List<Object[]> findStatusesByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.orderId IN :orderIds")
+    List<Order> findWithItemsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Moves every listed order that is currently in one of the expected statuses to the new status
+     * in a single statement. Returns one row per changed order: order_id, user_id, previous status.
+     */
+    @Transactional
+    @Query(value = "WITH target AS ("
+            + "SELECT order_id, status FROM orders "
+            + "WHERE order_id IN (:orderIds) AND status IN (:expectedStatuses) FOR UPDATE) "
+            + "UPDATE orders o SET status = :newStatus FROM target t WHERE o.order_id = t.order_id "
+            + "RETURNING o.order_id, o.user_id, t.status", nativeQuery = true)
+    List<Object[]> transitionStatus(@Param("orderIds") Collection<Long> orderIds,
+            @Param("expectedStatuses") Collection<String> expectedStatuses,
+            @Param("newStatus") String newStatus);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OrderItem i SET i.stockUnavailable = true WHERE i.orderItemId IN :orderItemIds")
+    int markStockUnavailable(@Param("orderItemIds") Collection<Long> orderItemIds);
+
+    /**
+     * Clears the flag of a line whose reservation succeeded after all, unless its order has been cancelled.
+     * Returns 0 when the order was cancelled, in which case the reserved stock must be released.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE order_items i SET stock_unavailable = false FROM orders o "
+            + "WHERE i.order_item_id = :orderItemId AND o.order_id = i.order_id AND o.status <> 'CANCELLED'",
+            nativeQuery = true)
+    int markStockReserved(@Param("orderItemId") Long orderItemId);
+
+    /**
+     * Like markStockReserved, but only for a line still flagged unreserved. Returns 0 for a line already
+     * counted as reserved or one whose order was cancelled.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE order_items i SET stock_unavailable = false FROM orders o "
+            + "WHERE i.order_item_id = :orderItemId AND i.stock_unavailable "
+            + "AND o.order_id = i.order_id AND o.status <> 'CANCELLED'",
+            nativeQuery = true)
+    int markUnreservedStockReserved(@Param("orderItemId") Long orderItemId);
+
+    /**
+     * Clears the flag of a line flagged unreserved on a cancelled order, returning 1 for the one caller that
+     * must release the stock reserved for it after all.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE order_items i SET stock_unavailable = false FROM orders o "
+            + "WHERE i.order_item_id = :orderItemId AND i.stock_unavailable "
+            + "AND o.order_id = i.order_id AND o.status = 'CANCELLED'",
+            nativeQuery = true)
+    int claimUnreservedLineOfCancelledOrder(@Param("orderItemId") Long orderItemId);
+}
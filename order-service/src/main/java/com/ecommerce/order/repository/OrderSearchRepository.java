@@ -0,0 +1,21 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.dto.OrderSearchCriteria;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderSearchRepository {
+
+    /**
+     * Returns {orderId, orderDate} of the next page of matching orders, newest first, strictly after
+     * the given keyset position (both null for the first page).
+     */
+    List<Object[]> findOrderKeys(OrderSearchCriteria criteria, LocalDateTime afterOrderDate, Long afterOrderId,
+            int limit);
+
+    /**
+     * Counts matching orders, stopping at cap + 1 so large results never cost a full count.
+     */
+    long countOrders(OrderSearchCriteria criteria, int cap);
+}
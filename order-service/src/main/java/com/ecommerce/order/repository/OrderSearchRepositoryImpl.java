@@ -0,0 +1,84 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.dto.OrderSearchCriteria;
+import com.ecommerce.order.entity.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderSearchRepositoryImpl implements OrderSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Object[]> findOrderKeys(OrderSearchCriteria criteria, LocalDateTime afterOrderDate,
+            Long afterOrderId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Order> order = query.from(Order.class);
+        Path<LocalDateTime> orderDate = order.get("orderDate");
+        Path<Long> orderId = order.get("orderId");
+
+        List<Predicate> predicates = predicates(cb, order, criteria);
+        if (afterOrderDate != null && afterOrderId != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(orderDate, afterOrderDate),
+                    cb.and(cb.equal(orderDate, afterOrderDate), cb.lessThan(orderId, afterOrderId))));
+        }
+
+        query.multiselect(orderId, orderDate)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(orderDate), cb.desc(orderId));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countOrders(OrderSearchCriteria criteria, int cap) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Order> order = query.from(Order.class);
+        query.select(order.get("orderId"))
+                .where(predicates(cb, order, criteria).toArray(new Predicate[0]));
+        return entityManager.createQuery(query)
+                .setMaxResults(cap + 1)
+                .getResultList()
+                .size();
+    }
+
+    private List<Predicate> predicates(CriteriaBuilder cb, Root<Order> order, OrderSearchCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getUserId() != null) {
+            predicates.add(cb.equal(order.get("userId"), criteria.getUserId()));
+        }
+        if (criteria.getStatuses() != null && !criteria.getStatuses().isEmpty()) {
+            predicates.add(order.get("status").in(criteria.getStatuses()));
+        }
+        Path<LocalDateTime> orderDate = order.get("orderDate");
+        if (criteria.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(orderDate, criteria.getFrom()));
+        }
+        if (criteria.getTo() != null) {
+            predicates.add(cb.lessThan(orderDate, criteria.getTo()));
+        }
+        Path<BigDecimal> totalAmount = order.get("totalAmount");
+        if (criteria.getMinAmount() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(totalAmount, criteria.getMinAmount()));
+        }
+        if (criteria.getMaxAmount() != null) {
+            predicates.add(cb.lessThanOrEqualTo(totalAmount, criteria.getMaxAmount()));
+        }
+        return predicates;
+    }
+}
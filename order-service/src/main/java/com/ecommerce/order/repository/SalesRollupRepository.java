@@ -0,0 +1,122 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.SalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, SalesRollup.Key> {
+
+    // Hour and day buckets are produced in one pass by crossing each order with both granularities
+    String BUCKETS = "CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day')) AS g(granularity, unit) ";
+
+    // Arbitrary key of the advisory lock that serializes flushes and rebuilds across replicas
+    long ROLLUP_LOCK_ID = 730_000_001L;
+
+    String ACCUMULATE = "ON CONFLICT (granularity, bucket_start, status, product_id) DO UPDATE SET "
+            + "order_count = order_sales_rollups.order_count + EXCLUDED.order_count, "
+            + "revenue = order_sales_rollups.revenue + EXCLUDED.revenue, "
+            + "units = order_sales_rollups.units + EXCLUDED.units";
+
+    // A rebuild covers the full history, so archived orders are read alongside the hot tables
+    String ALL_ORDERS = "(SELECT order_id, order_date, status, total_amount FROM orders UNION ALL "
+            + "SELECT order_id, order_date, status, total_amount FROM orders_archive) o ";
+
+    String ALL_ITEMS = "(SELECT order_id, product_id, quantity, price FROM order_items UNION ALL "
+            + "SELECT order_id, product_id, quantity, price FROM order_items_archive) i ";
+
+    /**
+     * Appends the change of adding (sign = 1) or removing (sign = -1) the given orders to the rollups
+     * of one status, both as order-level totals and per product. Only inserts new rows, so concurrent
+     * order transactions never wait on each other here.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO order_sales_rollup_deltas "
+            + "(granularity, bucket_start, status, product_id, order_count, revenue, units) "
+            + "SELECT g.granularity, date_trunc(g.unit, o.order_date), :status, 0, "
+            + ":sign * COUNT(*), :sign * SUM(o.total_amount), :sign * COALESCE(SUM(u.units), 0) "
+            + "FROM orders o " + BUCKETS
+            + "LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items "
+            + "WHERE order_id IN (:orderIds) GROUP BY order_id) u ON u.order_id = o.order_id "
+            + "WHERE o.order_id IN (:orderIds) "
+            + "GROUP BY g.granularity, date_trunc(g.unit, o.order_date) "
+            + "UNION ALL "
+            + "SELECT g.granularity, date_trunc(g.unit, o.order_date), :status, i.product_id, "
+            + ":sign * COUNT(DISTINCT o.order_id), :sign * SUM(i.price * i.quantity), :sign * SUM(i.quantity) "
+            + "FROM orders o JOIN order_items i ON i.order_id = o.order_id " + BUCKETS
+            + "WHERE o.order_id IN (:orderIds) "
+            + "GROUP BY g.granularity, date_trunc(g.unit, o.order_date), i.product_id", nativeQuery = true)
+    int appendDelta(@Param("orderIds") Collection<Long> orderIds, @Param("status") String status,
+            @Param("sign") int sign);
+
+    /**
+     * Moves every committed delta into the rollups. Rows are upserted in key order, so two flushes can
+     * never lock the same rollups in opposite orders.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "WITH moved AS (DELETE FROM order_sales_rollup_deltas RETURNING *) "
+            + "INSERT INTO order_sales_rollups "
+            + "(granularity, bucket_start, status, product_id, order_count, revenue, units) "
+            + "SELECT granularity, bucket_start, status, product_id, SUM(order_count), SUM(revenue), SUM(units) "
+            + "FROM moved GROUP BY granularity, bucket_start, status, product_id "
+            + "ORDER BY granularity, bucket_start, status, product_id "
+            + ACCUMULATE, nativeQuery = true)
+    int flushDeltas();
+
+    // Held by whichever replica is flushing or rebuilding, until its transaction ends
+    @Query(value = "SELECT pg_try_advisory_xact_lock(" + ROLLUP_LOCK_ID + ")", nativeQuery = true)
+    boolean tryLockRollups();
+
+    // Deltas already reflected in the order tables a rebuild reads from
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM order_sales_rollup_deltas", nativeQuery = true)
+    int deleteAllDeltas();
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM order_sales_rollups", nativeQuery = true)
+    int deleteAllRollups();
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO order_sales_rollups "
+            + "(granularity, bucket_start, status, product_id, order_count, revenue, units) "
+            + "SELECT g.granularity, date_trunc(g.unit, o.order_date), o.status, 0, "
+            + "COUNT(*), SUM(o.total_amount), COALESCE(SUM(u.units), 0) "
+            + "FROM " + ALL_ORDERS + BUCKETS
+            + "LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM " + ALL_ITEMS + "GROUP BY order_id) u "
+            + "ON u.order_id = o.order_id "
+            + "GROUP BY g.granularity, date_trunc(g.unit, o.order_date), o.status "
+            + "UNION ALL "
+            + "SELECT g.granularity, date_trunc(g.unit, o.order_date), o.status, i.product_id, "
+            + "COUNT(DISTINCT o.order_id), SUM(i.price * i.quantity), SUM(i.quantity) "
+            + "FROM " + ALL_ORDERS + "JOIN " + ALL_ITEMS + "ON i.order_id = o.order_id " + BUCKETS
+            + "GROUP BY g.granularity, date_trunc(g.unit, o.order_date), o.status, i.product_id",
+            nativeQuery = true)
+    int rebuildAll();
+
+    @Query("SELECT r FROM SalesRollup r WHERE r.id.granularity = :granularity AND r.id.productId = :productId "
+            + "AND r.id.bucketStart >= :from AND r.id.bucketStart < :to ORDER BY r.id.bucketStart, r.id.status")
+    List<SalesRollup> findRollups(@Param("granularity") SalesRollup.Granularity granularity,
+            @Param("productId") Long productId, @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    @Query("SELECT r FROM SalesRollup r WHERE r.id.granularity = :granularity AND r.id.productId = :productId "
+            + "AND r.id.status = :status AND r.id.bucketStart >= :from AND r.id.bucketStart < :to "
+            + "ORDER BY r.id.bucketStart")
+    List<SalesRollup> findRollupsByStatus(@Param("granularity") SalesRollup.Granularity granularity,
+            @Param("productId") Long productId, @Param("status") Order.OrderStatus status,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
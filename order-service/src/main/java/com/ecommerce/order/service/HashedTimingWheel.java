@@ -0,0 +1,158 @@
+package com.ecommerce.order.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel with O(1) scheduling. Items scheduled from any thread are handed to a single
+ * worker thread, which places them in the bucket for their deadline tick and, on every tick, passes
+ * the items that expired to the handler as one list. Deadlines are precise to one tick. A cancelled
+ * item stays in its bucket until its tick comes round and is then dropped.
+ */
+public class HashedTimingWheel<T> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private final long tickNanos;
+    private final int mask;
+    private final List<List<Timeout<T>>> buckets;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Consumer<List<T>> expiryHandler;
+    private final Thread worker;
+    private final long startNanos;
+
+    private volatile boolean running = true;
+
+    // Only touched by the worker thread
+    private long tick;
+
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize,
+            Consumer<List<T>> expiryHandler) {
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.expiryHandler = expiryHandler;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedules the item to expire after the delay. A delay of zero or less expires it on the next tick.
+     */
+    public Timeout<T> schedule(T item, long delay, TimeUnit unit) {
+        long deadlineTick = (System.nanoTime() - startNanos + Math.max(0, unit.toNanos(delay))) / tickNanos;
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+        size.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Cancels the timeout unless it has already expired. Returns true if it was cancelled.
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.done.compareAndSet(false, true)) {
+            return false;
+        }
+        size.decrementAndGet();
+        return true;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long nextTickNanos = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos = nextTickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+
+            transferPending();
+            List<T> expired = expireBucket();
+            tick++;
+
+            if (!expired.isEmpty()) {
+                size.addAndGet(-expired.size());
+                try {
+                    expiryHandler.accept(expired);
+                } catch (Exception e) {
+                    logger.error("Timing wheel expiry handler failed for {} items", expired.size(), e);
+                }
+            }
+        }
+    }
+
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            // Deadlines already behind the wheel go into the current bucket
+            timeout.deadlineTick = Math.max(timeout.deadlineTick, tick);
+            buckets.get((int) (timeout.deadlineTick & mask)).add(timeout);
+        }
+    }
+
+    private List<T> expireBucket() {
+        List<Timeout<T>> bucket = buckets.get((int) (tick & mask));
+        List<T> expired = new ArrayList<>();
+        int kept = 0;
+        // Entries for later rotations of the wheel stay in place; the rest are compacted out
+        for (Timeout<T> timeout : bucket) {
+            if (timeout.deadlineTick <= tick) {
+                // Claimed here or by cancel, whichever comes first
+                if (timeout.done.compareAndSet(false, true)) {
+                    expired.add(timeout.item);
+                }
+            } else {
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+        return expired;
+    }
+
+    public static final class Timeout<T> {
+        private final T item;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        // Moved onto the wheel by the worker thread only
+        private long deadlineTick;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+    }
+}
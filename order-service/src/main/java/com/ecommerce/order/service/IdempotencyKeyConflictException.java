@@ -0,0 +1,11 @@
+package com.ecommerce.order.service;
+
+/**
+ * Thrown when an idempotency key is reused with a different request payload.
+ */
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,193 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.OrderDto;
+import com.ecommerce.order.dto.OrderItemDto;
+import com.ecommerce.order.entity.ArchivedOrder;
+import com.ecommerce.order.entity.ArchivedOrderItem;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.repository.ArchivedOrderItemRepository;
+import com.ecommerce.order.repository.ArchivedOrderRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Moves finished orders out of the hot orders and order_items tables into their archive tables,
+ * and reads them back for queries that reach past the archive horizon. Archived orders still count
+ * towards the order counts by status.
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    private static final List<String> ARCHIVABLE_STATUSES =
+            List.of(Order.OrderStatus.DELIVERED.name(), Order.OrderStatus.CANCELLED.name());
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private ArchivedOrderItemRepository archivedOrderItemRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.archive.min-age:90d}")
+    private Duration minAge;
+
+    @Value("${order.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${order.archive.pause-ms:200}")
+    private long pauseMillis;
+
+    @Value("${order.archive.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Orders placed at or after this instant are never archived, so queries that start here or
+     * later only need the hot table.
+     */
+    public LocalDateTime archiveHorizon() {
+        return LocalDateTime.now().minus(minAge);
+    }
+
+    // Runs for minutes with pauses between batches, so it gets its own thread instead of the scheduler's
+    private final ExecutorService archiveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void stop() {
+        archiveExecutor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${order.archive.cron:0 0 3 * * *}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archiveExecutor.execute(this::archiveFinishedOrders);
+        }
+    }
+
+    /**
+     * Archives finished orders older than the configured age, one batch per transaction, pausing
+     * between batches so the hot tables are never locked for long. Returns the number of orders moved.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int archiveFinishedOrders() {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Order archival already running, skipping");
+            return 0;
+        }
+        try {
+            LocalDateTime cutoff = archiveHorizon();
+            int archived = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+                archived += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+            logger.info("Archived {} orders placed before {}", archived, cutoff);
+            return archived;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        // Rows are locked until commit and skipped by other replicas running the same job
+        List<Long> orderIds = archivedOrderRepository.lockArchivableOrderIds(ARCHIVABLE_STATUSES, cutoff, batchSize);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+
+        archivedOrderRepository.copyItemsToArchive(orderIds);
+        archivedOrderRepository.copyOrdersToArchive(orderIds, LocalDateTime.now());
+        archivedOrderRepository.deleteHotItems(orderIds);
+        archivedOrderRepository.deleteHotOrders(orderIds);
+        return orderIds.size();
+    }
+
+    public Optional<OrderDto> findArchivedOrder(Long orderId) {
+        return archivedOrderRepository.findById(orderId)
+                .map(order -> toDtos(List.of(order)).get(0));
+    }
+
+    public List<OrderDto> findArchivedOrdersByUserId(Long userId) {
+        return toDtos(archivedOrderRepository.findByUserId(userId));
+    }
+
+    public List<OrderDto> findArchivedOrdersBetweenDates(LocalDateTime startDate, LocalDateTime endDate) {
+        return toDtos(archivedOrderRepository.findOrdersBetweenDates(startDate, endDate));
+    }
+
+    private List<OrderDto> toDtos(List<ArchivedOrder> orders) {
+        if (orders.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, List<OrderItemDto>> itemsByOrder = archivedOrderItemRepository
+                .findByOrderIdIn(orders.stream().map(ArchivedOrder::getOrderId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(ArchivedOrderItem::getOrderId,
+                        Collectors.mapping(this::convertToDto, Collectors.toList())));
+
+        return orders.stream()
+                .map(order -> {
+                    OrderDto dto = new OrderDto(
+                            order.getOrderId(),
+                            order.getUserId(),
+                            order.getOrderDate(),
+                            order.getStatus(),
+                            order.getTotalAmount(),
+                            order.getShippingAddress(),
+                            order.getBillingAddress(),
+                            order.getNotes());
+                    dto.setOrderItems(itemsByOrder.getOrDefault(order.getOrderId(), Collections.emptyList()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private OrderItemDto convertToDto(ArchivedOrderItem item) {
+        return new OrderItemDto(
+                item.getOrderItemId(),
+                item.getProductId(),
+                item.getQuantity(),
+                item.getPrice(),
+                item.getProductName(),
+                item.getProductDescription());
+    }
+}
@@ -0,0 +1,453 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.OrderExportJobDto;
+import com.ecommerce.order.dto.OrderExportRequest;
+import com.ecommerce.order.repository.ArchivedOrderRepository;
+import com.ecommerce.order.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Runs bulk order exports in the background. Each job reads the orders in its date range through
+ * server-side cursors and streams them, gzip-compressed, into a file under the export directory,
+ * so memory use does not depend on the size of the range. Only a few jobs run at once; a bounded
+ * queue holds the rest and further submissions are refused.
+ *
+ * Jobs and their files live on the replica that ran them. Job ids name that replica, so status and
+ * download requests that land on another replica are forwarded to it, as long as it is still registered.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    private static final String CSV_HEADER =
+            "order_id,user_id,order_date,status,total_amount,order_item_id,product_id,product_name,quantity,price";
+
+    private static final Duration FORWARD_TIMEOUT = Duration.ofSeconds(5);
+
+    // Export rows are ordered by order date, then order id
+    private static final Comparator<Object[]> ROW_ORDER = Comparator
+            .comparing((Object[] row) -> (LocalDateTime) row[2])
+            .thenComparing(row -> (Long) row[0]);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DiscoveryClient discoveryClient;
+
+    // Absent when service discovery is disabled, in which case jobs are not forwarded
+    @Autowired(required = false)
+    private Registration registration;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${order.export.directory:${java.io.tmpdir}/order-exports}")
+    private String directory;
+
+    @Value("${order.export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${order.export.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${order.export.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${order.export.progress-interval:1000}")
+    private int progressInterval;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    private Path exportDirectory;
+    private ThreadPoolExecutor executor;
+    private TransactionTemplate exportTemplate;
+    private RestTemplate forwardTemplate;
+    private String ownerKey;
+
+    @PostConstruct
+    public void start() throws IOException {
+        exportDirectory = Files.createDirectories(Paths.get(directory));
+
+        // The hot and archive cursors read one snapshot, so an order archived mid-export is neither
+        // written twice nor missed, and the total matches the rows
+        exportTemplate = new TransactionTemplate(transactionManager);
+        exportTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        exportTemplate.setReadOnly(true);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout((int) FORWARD_TIMEOUT.toMillis());
+        requestFactory.setReadTimeout((int) FORWARD_TIMEOUT.toMillis());
+        forwardTemplate = new RestTemplate(requestFactory);
+        if (registration != null) {
+            ownerKey = encodeOwner(registration.getHost(), registration.getPort());
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-export-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues an export of the orders placed in [from, to). Returns empty when the export queue is full.
+     */
+    public Optional<OrderExportJobDto> submit(OrderExportRequest request) {
+        String jobId = ownerKey != null ? ownerKey + "." + UUID.randomUUID() : UUID.randomUUID().toString();
+        ExportJob job = new ExportJob(jobId, request);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            return Optional.empty();
+        }
+        return Optional.of(job.toDto());
+    }
+
+    /**
+     * Returns the job, asking the replica that owns it when that is another one.
+     */
+    public Optional<OrderExportJobDto> getJob(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job != null) {
+            return Optional.of(job.toDto());
+        }
+        return ownerOf(jobId).flatMap(owner -> {
+            try {
+                return Optional.ofNullable(forwardTemplate.getForObject(
+                        owner.resolve("/orders/exports/" + jobId), OrderExportJobDto.class));
+            } catch (HttpClientErrorException.NotFound e) {
+                return Optional.empty();
+            } catch (RestClientException e) {
+                logger.warn("Failed to look up export {} on {}: {}", jobId, owner, e.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Returns the compressed file of a completed job, streamed from the owning replica when that is
+     * another one. Callers check that the job has completed first.
+     */
+    public Optional<Resource> getFile(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job != null) {
+            return job.status == OrderExportJobDto.Status.COMPLETED
+                    ? Optional.of(new FileSystemResource(job.file)) : Optional.empty();
+        }
+        return ownerOf(jobId).map(owner -> {
+            try {
+                return new UrlResource(owner.resolve("/orders/exports/" + jobId + "/download"));
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException("Invalid export owner " + owner, e);
+            }
+        });
+    }
+
+    public static String fileName(String jobId, OrderExportRequest.Format format) {
+        return jobId + (format == OrderExportRequest.Format.CSV ? ".csv.gz" : ".ndjson.gz");
+    }
+
+    @Scheduled(fixedDelayString = "${order.export.cleanup-ms:600000}")
+    public void removeExpiredJobs() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(ttl);
+        jobs.values().removeIf(job -> {
+            if (job.completedAt == null || job.completedAt.isAfter(expiredBefore)) {
+                return false;
+            }
+            deleteQuietly(job.file);
+            return true;
+        });
+    }
+
+    private void run(ExportJob job) {
+        job.status = OrderExportJobDto.Status.RUNNING;
+        Path partial = exportDirectory.resolve(job.id + ".part");
+        try {
+            exportTemplate.executeWithoutResult(status -> export(job, partial));
+            job.exportedOrders = job.processed;
+            Files.move(partial, job.file, StandardCopyOption.ATOMIC_MOVE);
+            job.fileSizeBytes = Files.size(job.file);
+            job.status = OrderExportJobDto.Status.COMPLETED;
+            logger.info("Order export {} wrote {} orders ({} bytes)", job.id, job.exportedOrders, job.fileSizeBytes);
+        } catch (Exception e) {
+            deleteQuietly(partial);
+            job.error = e.getMessage();
+            job.status = OrderExportJobDto.Status.FAILED;
+            logger.error("Order export {} failed", job.id, e);
+        } finally {
+            job.completedAt = LocalDateTime.now();
+        }
+    }
+
+    private void export(ExportJob job, Path target) {
+        LocalDateTime from = job.request.getFrom();
+        LocalDateTime to = job.request.getTo();
+        // Archived orders all predate the horizon, so later ranges only need the hot table
+        boolean includeArchive = from.isBefore(orderArchiveService.archiveHorizon());
+
+        job.totalOrders = orderRepository.countOrdersInRange(from, to)
+                + (includeArchive ? archivedOrderRepository.countOrdersInRange(from, to) : 0);
+
+        try (Stream<Object[]> hot = orderRepository.streamExportRows(from, to);
+             Stream<Object[]> archived = includeArchive
+                     ? archivedOrderRepository.streamExportRows(from, to) : Stream.empty();
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new GZIPOutputStream(Files.newOutputStream(target), 64 * 1024), StandardCharsets.UTF_8))) {
+            Iterator<Object[]> rows = new MergingIterator(hot.iterator(), archived.iterator());
+            if (job.request.getFormat() == OrderExportRequest.Format.CSV) {
+                writeCsv(job, rows, writer);
+            } else {
+                writeNdjson(job, rows, writer);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write export file", e);
+        }
+    }
+
+    private void writeCsv(ExportJob job, Iterator<Object[]> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        Long currentOrderId = null;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            if (!row[0].equals(currentOrderId)) {
+                currentOrderId = (Long) row[0];
+                orderExported(job);
+            }
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvValue(row[i]));
+            }
+            writer.write('\n');
+        }
+    }
+
+    // One JSON object per order with its items nested, built from the consecutive rows of that order
+    private void writeNdjson(ExportJob job, Iterator<Object[]> rows, Writer writer) throws IOException {
+        ObjectNode order = null;
+        ArrayNode items = null;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            if (order == null || !row[0].equals(order.get("orderId").longValue())) {
+                if (order != null) {
+                    writeJsonLine(order, writer);
+                }
+                order = objectMapper.createObjectNode();
+                order.put("orderId", (Long) row[0]);
+                order.put("userId", (Long) row[1]);
+                order.put("orderDate", row[2].toString());
+                order.put("status", row[3].toString());
+                order.put("totalAmount", (BigDecimal) row[4]);
+                items = order.putArray("items");
+                orderExported(job);
+            }
+            if (row[5] != null) {
+                ObjectNode item = items.addObject();
+                item.put("orderItemId", (Long) row[5]);
+                item.put("productId", (Long) row[6]);
+                item.put("productName", (String) row[7]);
+                item.put("quantity", (Integer) row[8]);
+                item.put("price", (BigDecimal) row[9]);
+            }
+        }
+        if (order != null) {
+            writeJsonLine(order, writer);
+        }
+    }
+
+    private void writeJsonLine(ObjectNode order, Writer writer) throws IOException {
+        writer.write(objectMapper.writeValueAsString(order));
+        writer.write('\n');
+    }
+
+    private void orderExported(ExportJob job) {
+        job.processed++;
+        if (job.processed % progressInterval == 0) {
+            job.exportedOrders = job.processed;
+        }
+    }
+
+    // Only replicas currently registered for this service are trusted, so a job id cannot point anywhere else
+    private Optional<URI> ownerOf(String jobId) {
+        int separator = jobId.indexOf('.');
+        if (registration == null || separator < 0 || jobId.substring(0, separator).equals(ownerKey)) {
+            return Optional.empty();
+        }
+        String owner = jobId.substring(0, separator);
+        return discoveryClient.getInstances(registration.getServiceId()).stream()
+                .filter(instance -> encodeOwner(instance.getHost(), instance.getPort()).equals(owner))
+                .map(ServiceInstance::getUri)
+                .findFirst();
+    }
+
+    private static String encodeOwner(String host, int port) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((host + ":" + port).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete export file {}", file, e);
+        }
+    }
+
+    // Merges two row iterators that are each already in export order
+    private static final class MergingIterator implements Iterator<Object[]> {
+        private final Iterator<Object[]> left;
+        private final Iterator<Object[]> right;
+        private Object[] nextLeft;
+        private Object[] nextRight;
+
+        private MergingIterator(Iterator<Object[]> left, Iterator<Object[]> right) {
+            this.left = left;
+            this.right = right;
+            this.nextLeft = left.hasNext() ? left.next() : null;
+            this.nextRight = right.hasNext() ? right.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLeft != null || nextRight != null;
+        }
+
+        @Override
+        public Object[] next() {
+            Object[] row;
+            if (nextRight == null || (nextLeft != null && ROW_ORDER.compare(nextLeft, nextRight) <= 0)) {
+                row = nextLeft;
+                nextLeft = left.hasNext() ? left.next() : null;
+            } else {
+                row = nextRight;
+                nextRight = right.hasNext() ? right.next() : null;
+            }
+            return row;
+        }
+    }
+
+    private final class ExportJob {
+        private final String id;
+        private final OrderExportRequest request;
+        private final Path file;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        // Written only by the export thread; progress is published every progress-interval orders
+        private long processed;
+
+        private volatile OrderExportJobDto.Status status = OrderExportJobDto.Status.QUEUED;
+        private volatile long exportedOrders;
+        private volatile long totalOrders;
+        private volatile Long fileSizeBytes;
+        private volatile String error;
+        private volatile LocalDateTime completedAt;
+
+        private ExportJob(String id, OrderExportRequest request) {
+            this.id = id;
+            this.request = request;
+            this.file = exportDirectory.resolve(fileName(id, request.getFormat()));
+        }
+
+        private OrderExportJobDto toDto() {
+            OrderExportJobDto dto = new OrderExportJobDto();
+            dto.setJobId(id);
+            dto.setStatus(status);
+            dto.setFormat(request.getFormat());
+            dto.setFrom(request.getFrom());
+            dto.setTo(request.getTo());
+            dto.setExportedOrders(exportedOrders);
+            dto.setTotalOrders(totalOrders);
+            dto.setCreatedAt(createdAt);
+            dto.setCompletedAt(completedAt);
+            dto.setFileSizeBytes(fileSizeBytes);
+            dto.setError(error);
+            return dto;
+        }
+    }
+}
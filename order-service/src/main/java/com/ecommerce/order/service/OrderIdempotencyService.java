@@ -0,0 +1,151 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderDto;
+import com.ecommerce.order.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deduplicates order creation by Idempotency-Key. Replays are served from a bounded in-memory LRU,
+ * then from the persistent key table; concurrent requests with the same key on this replica share
+ * one execution.
+ */
+@Service
+public class OrderIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIdempotencyService.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${order.idempotency.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${order.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${order.idempotency.wait-timeout:30s}")
+    private Duration waitTimeout;
+
+    private Map<String, CachedOrder> recentOrders;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        recentOrders = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedOrder> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public OrderDto createOrder(String idempotencyKey, CreateOrderRequest request) {
+        // Keys are scoped per user so two clients cannot collide on the same key
+        String key = request.getUserId() + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        CachedOrder cached = recentOrders.get(key);
+        if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+            checkSameRequest(cached.requestHash(), requestHash);
+            return cached.order();
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            checkSameRequest(running.requestHash(), requestHash);
+            return await(running.result());
+        }
+
+        try {
+            LocalDateTime expiresAt = LocalDateTime.now().plus(ttl);
+            Optional<OrderDto> replay = orderService.findIdempotentOrder(key, requestHash);
+            OrderDto order = replay.isPresent()
+                    ? replay.get()
+                    : orderService.createOrderIdempotently(request, key, requestHash, expiresAt);
+            recentOrders.put(key, new CachedOrder(requestHash, order, expiresAt));
+            mine.result().complete(order);
+            return order;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredKeys() {
+        int purged = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private void checkSameRequest(String expectedHash, String requestHash) {
+        if (!expectedHash.equals(requestHash)) {
+            throw new IdempotencyKeyConflictException(
+                    "Idempotency key was already used with a different request");
+        }
+    }
+
+    private OrderDto await(CompletableFuture<OrderDto> result) {
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a concurrent request", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out waiting for a concurrent request with the same key", e);
+        }
+    }
+
+    private String hash(CreateOrderRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to fingerprint order request", e);
+        }
+    }
+
+    private record CachedOrder(String requestHash, OrderDto order, LocalDateTime expiresAt) {
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<OrderDto> result) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.ecommerce.order.service;
+
+/**
+ * Thrown when an order cannot be accepted as submitted, such as a stale price or a product
+ * known to be out of stock.
+ */
+public class OrderRejectedException extends RuntimeException {
+
+    public OrderRejectedException(String message) {
+        super(message);
+    }
+}
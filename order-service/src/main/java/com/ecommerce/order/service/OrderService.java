@@ -1,25 +1,60 @@
 package com.ecommerce.order.service;
 
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.BulkStatusUpdateResponse;
 import com.ecommerce.order.dto.CreateOrderRequest;
 import com.ecommerce.order.dto.OrderDto;
 import com.ecommerce.order.dto.OrderItemDto;
+import com.ecommerce.order.dto.OrderSearchCriteria;
+import com.ecommerce.order.dto.OrderSearchResponse;
+import com.ecommerce.order.dto.OrderStatusChange;
+import com.ecommerce.order.dto.StockReservationReply;
+import com.ecommerce.order.entity.IdempotencyKey;
 import com.ecommerce.order.entity.Order;
 import com.ecommerce.order.entity.OrderItem;
+import com.ecommerce.order.messaging.MessageTracing;
+import com.ecommerce.order.repository.IdempotencyKeyRepository;
 import com.ecommerce.order.repository.OrderRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,15 +63,65 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    // Attributes callers may pick with ?fields=, in response order; the id is always included
+    private static final List<String> SELECTABLE_FIELDS = List.of("orderId", "userId", "orderDate", "status",
+            "totalAmount", "shippingAddress", "billingAddress", "notes");
+
+    // Selecting this pseudo-field loads the order lines with a second query; orderItems.<field> picks line fields
+    private static final String ITEMS_FIELD = "orderItems";
+
+    private static final List<String> SELECTABLE_ITEM_FIELDS = List.of("orderItemId", "productId", "quantity",
+            "price", "productName", "productDescription");
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderStatusCounters orderStatusCounters;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private OrderStatusStreamService orderStatusStreamService;
+
+    @Autowired
+    private PaymentDeadlineService paymentDeadlineService;
+
+    @Autowired
+    private ProductSnapshot productSnapshot;
+
+    @Autowired
+    private StockReservationAggregator stockReservationAggregator;
+
+    @Autowired
+    @Qualifier("stockReservationReplyQueue")
+    private Queue stockReservationReplyQueue;
+
+    @Value("${order.bulk-status.chunk-size:1000}")
+    private int bulkStatusChunkSize;
+
+    @Value("${order.search.count-cap:10000}")
+    private int searchCountCap;
+
+    @Value("${order.stock-reservation.timeout:60s}")
+    private Duration stockReservationTimeout;
+
     public List<OrderDto> getAllOrders() {
         return orderRepository.findAll().stream()
                 .map(this::convertToDto)
@@ -48,15 +133,86 @@ public class OrderService {
                 .map(this::convertToDto);
     }
 
+    /**
+     * Returns a page of orders with only the requested fields, selected in the query itself. The
+     * order lines are only read when orderItems is requested, and then only the requested line fields,
+     * or all of them for plain orderItems.
+     *
+     * @throws IllegalArgumentException if a requested field is not selectable
+     */
+    public Page<Map<String, Object>> getAllOrders(String fields, Pageable pageable) {
+        Set<String> requested = parseFields(fields);
+        Set<String> requestedItemFields = new HashSet<>();
+        boolean includeItems = requested.remove(ITEMS_FIELD);
+        if (includeItems) {
+            requestedItemFields.addAll(SELECTABLE_ITEM_FIELDS);
+        }
+        for (Iterator<String> it = requested.iterator(); it.hasNext(); ) {
+            String field = it.next();
+            if (field.startsWith(ITEMS_FIELD + ".")) {
+                requestedItemFields.add(field.substring(ITEMS_FIELD.length() + 1));
+                includeItems = true;
+                it.remove();
+            }
+        }
+        List<String> selected = selectFields(requested, SELECTABLE_FIELDS, "orderId", "order");
+        List<String> selectedItemFields = selectFields(requestedItemFields, SELECTABLE_ITEM_FIELDS, "orderItemId",
+                "order item");
+
+        List<Map<String, Object>> rows = orderRepository.findFields(selected, pageable);
+        if (includeItems && !rows.isEmpty()) {
+            Map<Long, List<Map<String, Object>>> itemsByOrderId = new HashMap<>();
+            List<Long> orderIds = rows.stream()
+                    .map(row -> (Long) row.get("orderId"))
+                    .collect(Collectors.toList());
+            for (Map<String, Object> item : orderRepository.findItemFields(orderIds, selectedItemFields)) {
+                Long orderId = (Long) item.remove("orderId");
+                itemsByOrderId.computeIfAbsent(orderId, id -> new ArrayList<>()).add(item);
+            }
+            rows.forEach(row -> row.put(ITEMS_FIELD,
+                    itemsByOrderId.getOrDefault((Long) row.get("orderId"), Collections.emptyList())));
+        }
+        return PageableExecutionUtils.getPage(rows, pageable, orderRepository::count);
+    }
+
+    private static Set<String> parseFields(String fields) {
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    // Keeps the selectable order of the fields and always includes the id
+    private static List<String> selectFields(Set<String> requested, List<String> selectable, String idField,
+            String kind) {
+        for (String field : requested) {
+            if (!selectable.contains(field)) {
+                throw new IllegalArgumentException("Unknown " + kind + " field: " + field);
+            }
+        }
+        return selectable.stream()
+                .filter(field -> field.equals(idField) || requested.contains(field))
+                .collect(Collectors.toList());
+    }
+
     public Optional<OrderDto> getOrderById(Long id) {
-        return orderRepository.findById(id)
+        Optional<OrderDto> order = orderRepository.findById(id)
                 .map(this::convertToDto);
+        return order.isPresent() ? order : orderArchiveService.findArchivedOrder(id);
     }
 
     public List<OrderDto> getOrdersByUserId(Long userId) {
-        return orderRepository.findByUserId(userId).stream()
+        return getOrdersByUserId(userId, true);
+    }
+
+    public List<OrderDto> getOrdersByUserId(Long userId, boolean includeArchived) {
+        List<OrderDto> orders = orderRepository.findByUserId(userId).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        if (includeArchived) {
+            orders.addAll(orderArchiveService.findArchivedOrdersByUserId(userId));
+        }
+        return orders;
     }
 
     public List<OrderDto> getOrdersByStatus(Order.OrderStatus status) {
@@ -66,6 +222,9 @@ public class OrderService {
     }
 
     public OrderDto createOrder(CreateOrderRequest request) {
+        // Reject stale prices and clearly unfulfillable quantities before anything is written
+        productSnapshot.validate(request.getOrderItems());
+
         // Calculate total amount
         BigDecimal totalAmount = request.getOrderItems().stream()
                 .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
@@ -87,26 +246,71 @@ public class OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        salesRollupService.recordCreated(List.of(savedOrder.getOrderId()), savedOrder.getStatus());
+        orderStatusCounters.recordCreated(savedOrder.getStatus());
+        paymentDeadlineService.register(savedOrder.getOrderId(), savedOrder.getOrderDate());
+        String correlationId = MessageTracing.newCorrelationId();
 
-        // Publish order created event
-        publishOrderEvent("order.created", savedOrder);
+        // Publish order created event once committed, so other replicas never count a rolled back order
+        afterCommit(() -> publishOrderEvent("order.created", savedOrder, correlationId));
 
-        // Reserve stock for products
-        reserveStockForOrder(savedOrder);
+        // Reserve stock for products once the order is committed, so replies always find it
+        stockReservationAggregator.register(savedOrder.getOrderId(), savedOrder.getOrderItems().stream()
+                .map(OrderItem::getOrderItemId)
+                .collect(Collectors.toList()));
+        afterCommit(() -> reserveStockForOrder(savedOrder, correlationId));
 
         logger.info("Order created with ID: {}", savedOrder.getOrderId());
         return convertToDto(savedOrder);
     }
 
+    /**
+     * Creates an order under an idempotency key. The key row is claimed in the same transaction as the
+     * order, so a concurrent request with the same key on any replica waits on the claim and then
+     * replays the committed order instead of creating a second one.
+     */
+    public OrderDto createOrderIdempotently(CreateOrderRequest request, String idempotencyKey, String requestHash,
+            LocalDateTime expiresAt) {
+        if (idempotencyKeyRepository.tryClaim(idempotencyKey, requestHash, LocalDateTime.now(), expiresAt) == 0) {
+            IdempotencyKey existing = idempotencyKeyRepository.findById(idempotencyKey)
+                    .orElseThrow(() -> new IllegalStateException("Idempotency key vanished: " + idempotencyKey));
+            return replayIdempotentOrder(existing, requestHash);
+        }
+
+        OrderDto createdOrder = createOrder(request);
+        idempotencyKeyRepository.assignOrder(idempotencyKey, createdOrder.getOrderId());
+        return createdOrder;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<OrderDto> findIdempotentOrder(String idempotencyKey, String requestHash) {
+        return idempotencyKeyRepository.findById(idempotencyKey)
+                .filter(key -> key.getOrderId() != null && key.getExpiresAt().isAfter(LocalDateTime.now()))
+                .map(key -> replayIdempotentOrder(key, requestHash));
+    }
+
+    private OrderDto replayIdempotentOrder(IdempotencyKey key, String requestHash) {
+        if (!key.getRequestHash().equals(requestHash)) {
+            throw new IdempotencyKeyConflictException(
+                    "Idempotency key was already used with a different request");
+        }
+        return getOrderById(key.getOrderId())
+                .orElseThrow(() -> new IllegalStateException("Order " + key.getOrderId() + " not found"));
+    }
+
     public OrderDto updateOrderStatus(Long orderId, Order.OrderStatus newStatus) {
         return orderRepository.findById(orderId)
                 .map(order -> {
                     Order.OrderStatus oldStatus = order.getStatus();
                     order.setStatus(newStatus);
                     Order savedOrder = orderRepository.save(order);
+                    salesRollupService.recordTransition(List.of(orderId), oldStatus, newStatus);
+                    orderStatusCounters.recordTransition(oldStatus, newStatus);
 
-                    // Publish status change event
-                    publishOrderStatusChangeEvent(savedOrder, oldStatus, newStatus);
+                    // Publish status change event once committed
+                    String correlationId = MessageTracing.newCorrelationId();
+                    afterCommit(() -> publishOrderStatusChangeEvents(List.of(new OrderStatusChange(
+                            savedOrder.getOrderId(), savedOrder.getUserId(), oldStatus, newStatus)), correlationId));
 
                     logger.info("Order {} status changed from {} to {}", orderId, oldStatus, newStatus);
                     return convertToDto(savedOrder);
@@ -119,14 +323,27 @@ public class OrderService {
                 .map(order -> {
                     if (order.getStatus() == Order.OrderStatus.CREATED ||
                             order.getStatus() == Order.OrderStatus.CONFIRMED) {
+                        Order.OrderStatus oldStatus = order.getStatus();
                         order.setStatus(Order.OrderStatus.CANCELLED);
                         orderRepository.save(order);
-
-                        // Publish cancellation event
-                        publishOrderEvent("order.cancelled", order);
-
-                        // Release reserved stock
-                        releaseStockForOrder(order);
+                        salesRollupService.recordTransition(List.of(orderId), oldStatus,
+                                Order.OrderStatus.CANCELLED);
+                        orderStatusCounters.recordTransition(oldStatus, Order.OrderStatus.CANCELLED);
+                        String correlationId = MessageTracing.newCorrelationId();
+
+                        // Lines are loaded now, while the transaction is still open; unreserved ones hold no stock
+                        List<OrderItem> items = order.getOrderItems().stream()
+                                .filter(item -> !item.isStockUnavailable())
+                                .collect(Collectors.toList());
+
+                        // Publish cancellation and status change events and release reserved stock once committed
+                        afterCommit(() -> {
+                            publishOrderEvent("order.cancelled", order, correlationId);
+                            publishOrderStatusChangeEvents(List.of(new OrderStatusChange(orderId, order.getUserId(),
+                                    oldStatus, Order.OrderStatus.CANCELLED)), correlationId);
+                            items.forEach(item -> releaseStock(orderId, item.getOrderItemId(), item.getProductId(),
+                                    item.getQuantity(), correlationId));
+                        });
 
                         logger.info("Order {} cancelled", orderId);
                         return true;
@@ -136,23 +353,334 @@ public class OrderService {
                 .orElse(false);
     }
 
+    /**
+     * Applies a set of target statuses in one transaction per target status. Each target is a guarded
+     * set-based update, so orders not in an allowed predecessor status (including duplicates that were
+     * already applied) are left untouched. Events are published after commit.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<OrderStatusChange> applyStatusTransitions(Map<Long, Order.OrderStatus> targetStatuses) {
+        Map<Order.OrderStatus, List<Long>> orderIdsByTarget = new EnumMap<>(Order.OrderStatus.class);
+        targetStatuses.forEach((orderId, target) ->
+                orderIdsByTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(orderId));
+
+        List<OrderStatusChange> changes = new ArrayList<>();
+        orderIdsByTarget.forEach((target, orderIds) -> changes.addAll(transitionOrders(orderIds, target)));
+        return changes;
+    }
+
+    /**
+     * Confirms an order whose stock was reserved for every line, unless it has moved on already.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean confirmReservedOrder(Long orderId) {
+        return !transitionOrders(List.of(orderId), Order.OrderStatus.CONFIRMED).isEmpty();
+    }
+
+    /**
+     * Cancels an order after some of its lines could not be reserved, releasing only the lines that were.
+     * The unreserved lines are recorded on the order first, so no later cancellation releases them either.
+     * Returns false if the order could no longer be cancelled, typically because it was already paid; that
+     * order is left short of stock, so it is logged and announced for follow-up.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean cancelAfterFailedReservation(Long orderId, List<StockReservationReply> reservedLines,
+            Collection<Long> unreservedLineIds) {
+        orderRepository.markStockUnavailable(unreservedLineIds);
+        if (transitionOrders(List.of(orderId), Order.OrderStatus.CANCELLED, false).isEmpty()) {
+            orderRepository.findById(orderId)
+                    .filter(order -> order.getStatus() != Order.OrderStatus.CANCELLED)
+                    .ifPresent(order -> {
+                        logger.error("Order {} is {} but stock could not be reserved for {} of its lines",
+                                orderId, order.getStatus(), unreservedLineIds.size());
+                        publishOrderEvent("order.stock.unavailable", order, MessageTracing.newCorrelationId());
+                    });
+            return false;
+        }
+        releaseReservedLines(orderId, reservedLines);
+        return true;
+    }
+
+    /**
+     * Handles a line reserved after its order had given up waiting: the line counts as reserved again,
+     * or, if the order has been cancelled, its stock is released.
+     */
+    public void applyLateReservation(Long orderId, StockReservationReply line) {
+        if (orderRepository.markStockReserved(line.getOrderItemId()) == 0) {
+            logger.info("Releasing late stock reservation of product {} for cancelled order {}",
+                    line.getProductId(), orderId);
+            releaseReservedLines(orderId, List.of(line));
+        }
+    }
+
+    /**
+     * Handles a successful reservation for an order this replica no longer waits on, such as one past the
+     * late-reply window or from before a restart. Only a line its order still records as unreserved was
+     * never counted: it becomes reserved again, or is released if the order was cancelled. Any other reply
+     * is a redelivery and is ignored.
+     */
+    public void applyUnclaimedReservation(Long orderId, StockReservationReply line) {
+        if (orderRepository.markUnreservedStockReserved(line.getOrderItemId()) > 0) {
+            logger.info("Recorded late stock reservation of product {} for order {}", line.getProductId(), orderId);
+            return;
+        }
+        if (orderRepository.claimUnreservedLineOfCancelledOrder(line.getOrderItemId()) > 0) {
+            logger.info("Releasing late stock reservation of product {} for cancelled order {}",
+                    line.getProductId(), orderId);
+            releaseReservedLines(orderId, List.of(line));
+        }
+    }
+
+    public void releaseReservedLines(Long orderId, List<StockReservationReply> reservedLines) {
+        String correlationId = MessageTracing.newCorrelationId();
+        for (StockReservationReply line : reservedLines) {
+            releaseStock(orderId, line.getOrderItemId(), line.getProductId(), line.getQuantity(), correlationId);
+        }
+    }
+
+    /**
+     * Requests refunds for payments that completed after their order was cancelled, typically by the payment
+     * deadline, since the customer has been charged for an order that will not ship. Payments for orders in
+     * any other status are redelivered duplicates and are ignored. Returns the number of refunds requested.
+     */
+    public int requestRefundsForCancelledOrders(List<PaymentRefundMessage> payments) {
+        Set<Long> cancelledOrderIds = new LinkedHashSet<>();
+        for (Object[] row : orderRepository.findStatusesByOrderIdIn(payments.stream()
+                .map(PaymentRefundMessage::getOrderId)
+                .collect(Collectors.toList()))) {
+            if (row[1] == Order.OrderStatus.CANCELLED) {
+                cancelledOrderIds.add((Long) row[0]);
+            }
+        }
+
+        String correlationId = MessageTracing.newCorrelationId();
+        int requested = 0;
+        for (PaymentRefundMessage payment : payments) {
+            if (!cancelledOrderIds.contains(payment.getOrderId())) {
+                continue;
+            }
+            logger.error("Payment {} of {} completed for order {} after it was cancelled; requesting a refund",
+                    payment.getPaymentId(), payment.getAmount(), payment.getOrderId());
+            try {
+                rabbitTemplate.convertAndSend(RabbitMQConfig.ORDER_EXCHANGE, RabbitMQConfig.PAYMENT_REFUND_ROUTING_KEY,
+                        objectMapper.writeValueAsString(payment), MessageTracing.stamp(correlationId));
+                requested++;
+            } catch (Exception e) {
+                logger.error("Failed to request a refund of payment {} for cancelled order {}",
+                        payment.getPaymentId(), payment.getOrderId(), e);
+            }
+        }
+        return requested;
+    }
+
+    /**
+     * Cancels the given orders if they are still unpaid, releasing their stock. Returns the number cancelled.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int cancelUnpaidOrders(Collection<Long> orderIds) {
+        return transitionOrders(orderIds, Order.OrderStatus.CANCELLED).size();
+    }
+
+    /**
+     * Moves many orders to one target status, one guarded update and one event batch per chunk,
+     * and reports the outcome for every requested id.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkStatusUpdateResponse bulkUpdateOrderStatus(List<Long> orderIds, Order.OrderStatus targetStatus) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        List<BulkStatusUpdateResponse.Result> results = new ArrayList<>(distinctIds.size());
+        int updated = 0;
+
+        for (int from = 0; from < distinctIds.size(); from += bulkStatusChunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + bulkStatusChunkSize, distinctIds.size()));
+
+            Map<Long, Order.OrderStatus> previousStatuses = new HashMap<>();
+            for (OrderStatusChange change : transitionOrders(chunk, targetStatus)) {
+                previousStatuses.put(change.getOrderId(), change.getOldStatus());
+            }
+            updated += previousStatuses.size();
+
+            // Only ids that were not updated need a second look to tell missing from ineligible
+            List<Long> unchanged = chunk.stream()
+                    .filter(id -> !previousStatuses.containsKey(id))
+                    .collect(Collectors.toList());
+            Map<Long, Order.OrderStatus> currentStatuses = new HashMap<>();
+            if (!unchanged.isEmpty()) {
+                for (Object[] row : orderRepository.findStatusesByOrderIdIn(unchanged)) {
+                    currentStatuses.put((Long) row[0], (Order.OrderStatus) row[1]);
+                }
+            }
+
+            for (Long orderId : chunk) {
+                if (previousStatuses.containsKey(orderId)) {
+                    results.add(new BulkStatusUpdateResponse.Result(orderId,
+                            BulkStatusUpdateResponse.Outcome.UPDATED, previousStatuses.get(orderId)));
+                } else if (currentStatuses.containsKey(orderId)) {
+                    results.add(new BulkStatusUpdateResponse.Result(orderId,
+                            BulkStatusUpdateResponse.Outcome.INVALID_TRANSITION, currentStatuses.get(orderId)));
+                } else {
+                    results.add(new BulkStatusUpdateResponse.Result(orderId,
+                            BulkStatusUpdateResponse.Outcome.NOT_FOUND, null));
+                }
+            }
+        }
+
+        logger.info("Bulk status update to {}: {} of {} orders updated", targetStatus, updated, distinctIds.size());
+        return new BulkStatusUpdateResponse(targetStatus, distinctIds.size(), updated, results);
+    }
+
+    private List<OrderStatusChange> transitionOrders(Collection<Long> orderIds, Order.OrderStatus newStatus) {
+        return transitionOrders(orderIds, newStatus, true);
+    }
+
+    private List<OrderStatusChange> transitionOrders(Collection<Long> orderIds, Order.OrderStatus newStatus,
+            boolean releaseStock) {
+        if (orderIds.isEmpty() || newStatus.allowedPredecessors().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> expectedStatuses = newStatus.allowedPredecessors().stream()
+                .map(Enum::name)
+                .collect(Collectors.toList());
+
+        List<Order> cancelledOrders = new ArrayList<>();
+        List<OrderStatusChange> changes = transactionTemplate.execute(tx -> {
+            List<OrderStatusChange> applied = orderRepository
+                    .transitionStatus(orderIds, expectedStatuses, newStatus.name()).stream()
+                    .map(row -> new OrderStatusChange(
+                            ((Number) row[0]).longValue(),
+                            ((Number) row[1]).longValue(),
+                            Order.OrderStatus.valueOf((String) row[2]),
+                            newStatus))
+                    .collect(Collectors.toList());
+
+            applied.stream()
+                    .collect(Collectors.groupingBy(OrderStatusChange::getOldStatus,
+                            Collectors.mapping(OrderStatusChange::getOrderId, Collectors.toList())))
+                    .forEach((oldStatus, ids) -> salesRollupService.recordTransition(ids, oldStatus, newStatus));
+            applied.forEach(change -> orderStatusCounters.recordTransition(change.getOldStatus(), newStatus));
+
+            // Cancellations release stock, which needs the order lines
+            if (newStatus == Order.OrderStatus.CANCELLED && !applied.isEmpty()) {
+                cancelledOrders.addAll(orderRepository.findWithItemsByOrderIdIn(applied.stream()
+                        .map(OrderStatusChange::getOrderId)
+                        .collect(Collectors.toList())));
+            }
+            return applied;
+        });
+
+        publishStatusTransitions(changes, cancelledOrders, releaseStock);
+        logger.info("Transitioned {} of {} orders to {}", changes.size(), orderIds.size(), newStatus);
+        return changes;
+    }
+
+    private void publishStatusTransitions(List<OrderStatusChange> changes, List<Order> cancelledOrders,
+            boolean releaseStock) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        String correlationId = MessageTracing.newCorrelationId();
+
+        // Publish the whole batch on one channel
+        rabbitTemplate.invoke(operations -> {
+            publishOrderStatusChangeEvents(changes, correlationId);
+            for (Order order : cancelledOrders) {
+                publishOrderEvent("order.cancelled", order, correlationId);
+                if (releaseStock) {
+                    releaseStockForOrder(order, correlationId);
+                }
+            }
+            return null;
+        });
+    }
+
     public List<OrderDto> getOrdersBetweenDates(LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findOrdersBetweenDates(startDate, endDate).stream()
+        List<OrderDto> orders = orderRepository.findOrdersBetweenDates(startDate, endDate).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
+        // Only ranges reaching past the archive horizon can contain archived orders
+        if (startDate.isBefore(orderArchiveService.archiveHorizon())) {
+            orders.addAll(orderArchiveService.findArchivedOrdersBetweenDates(startDate, endDate));
+        }
+        return orders;
+    }
+
+    /**
+     * Returns one page of matching orders, newest first, continuing after the given cursor. The total is
+     * only computed for the first page, and stops counting at the configured cap.
+     */
+    @Transactional(readOnly = true)
+    public OrderSearchResponse searchOrders(OrderSearchCriteria criteria, String cursor, int size) {
+        LocalDateTime afterOrderDate = null;
+        Long afterOrderId = null;
+        if (cursor != null) {
+            try {
+                String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                        .split("\\|");
+                afterOrderDate = LocalDateTime.parse(position[0]);
+                afterOrderId = Long.valueOf(position[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid search cursor", e);
+            }
+        }
+
+        // One extra row tells whether another page follows
+        List<Object[]> keys = orderRepository.findOrderKeys(criteria, afterOrderDate, afterOrderId, size + 1);
+        boolean hasMore = keys.size() > size;
+        if (hasMore) {
+            keys = keys.subList(0, size);
+        }
+
+        List<Long> orderIds = keys.stream()
+                .map(key -> (Long) key[0])
+                .collect(Collectors.toList());
+        Map<Long, Order> ordersById = orderIds.isEmpty() ? Collections.emptyMap()
+                : orderRepository.findWithItemsByOrderIdIn(orderIds).stream()
+                        .collect(Collectors.toMap(Order::getOrderId, Function.identity()));
+        List<OrderDto> orders = orderIds.stream()
+                .map(ordersById::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasMore) {
+            Object[] last = keys.get(keys.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last[1] + "|" + last[0]).getBytes(StandardCharsets.UTF_8));
+        }
+
+        Long totalCount = null;
+        boolean totalCountCapped = false;
+        if (cursor == null) {
+            long count = orderRepository.countOrders(criteria, searchCountCap);
+            totalCountCapped = count > searchCountCap;
+            totalCount = Math.min(count, searchCountCap);
+        }
+        return new OrderSearchResponse(orders, nextCursor, totalCount, totalCountCapped);
     }
 
     public Long getOrderCountByStatus(Order.OrderStatus status) {
-        return orderRepository.countByStatus(status);
+        return orderStatusCounters.getCount(status);
     }
 
-    private void reserveStockForOrder(Order order) {
+    private void reserveStockForOrder(Order order, String correlationId) {
+        // Replies come back to this replica, which holds the order's pending reservation. A request still
+        // queued when the order has stopped waiting is dropped by the broker rather than reserving stock
+        // for an order that was cancelled in the meantime.
+        MessagePostProcessor stamp = MessageTracing.stamp(correlationId);
+        MessagePostProcessor stampWithReplyTo = message -> {
+            MessageProperties properties = stamp.postProcessMessage(message).getMessageProperties();
+            properties.setReplyTo(stockReservationReplyQueue.getName());
+            properties.setExpiration(String.valueOf(stockReservationTimeout.toMillis()));
+            return message;
+        };
         for (OrderItem item : order.getOrderItems()) {
             try {
                 String stockReservationMessage = objectMapper.writeValueAsString(
                         new StockReservationMessage(item.getProductId(), item.getQuantity(),
-                                order.getOrderId().toString()));
-                rabbitTemplate.convertAndSend("product.exchange", "product.stock.reserve", stockReservationMessage);
+                                order.getOrderId().toString(), item.getOrderItemId()));
+                rabbitTemplate.convertAndSend("product.exchange", "product.stock.reserve", stockReservationMessage,
+                        stampWithReplyTo);
                 logger.info("Stock reservation requested for product {} quantity {}",
                         item.getProductId(), item.getQuantity());
             } catch (Exception e) {
@@ -161,42 +689,86 @@ public class OrderService {
         }
     }
 
-    private void releaseStockForOrder(Order order) {
+    private void releaseStockForOrder(Order order, String correlationId) {
         for (OrderItem item : order.getOrderItems()) {
-            try {
-                String stockReleaseMessage = objectMapper.writeValueAsString(
-                        new StockReservationMessage(item.getProductId(), item.getQuantity(),
-                                order.getOrderId().toString()));
-                rabbitTemplate.convertAndSend("product.exchange", "product.stock.release", stockReleaseMessage);
-                logger.info("Stock release requested for product {} quantity {}",
-                        item.getProductId(), item.getQuantity());
-            } catch (Exception e) {
-                logger.error("Failed to send stock release message", e);
+            if (item.isStockUnavailable()) {
+                continue;
             }
+            releaseStock(order.getOrderId(), item.getOrderItemId(), item.getProductId(), item.getQuantity(),
+                    correlationId);
+        }
+    }
+
+    private void releaseStock(Long orderId, Long orderItemId, Long productId, Integer quantity,
+            String correlationId) {
+        try {
+            String stockReleaseMessage = objectMapper.writeValueAsString(
+                    new StockReservationMessage(productId, quantity, orderId.toString(), orderItemId));
+            rabbitTemplate.convertAndSend("product.exchange", "product.stock.release", stockReleaseMessage,
+                    MessageTracing.stamp(correlationId));
+            logger.info("Stock release requested for product {} quantity {}", productId, quantity);
+        } catch (Exception e) {
+            logger.error("Failed to send stock release message", e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 
-    private void publishOrderEvent(String eventType, Order order) {
+    private void publishOrderEvent(String eventType, Order order, String correlationId) {
         try {
             String orderMessage = objectMapper.writeValueAsString(
                     new OrderEventMessage(eventType, order.getOrderId(), order.getUserId(),
-                            order.getStatus().toString(), order.getTotalAmount()));
-            rabbitTemplate.convertAndSend("order.exchange", "order.status", orderMessage);
+                            order.getStatus().toString(), order.getTotalAmount(), order.getOrderDate()));
+            rabbitTemplate.convertAndSend("order.exchange", "order.status", orderMessage,
+                    MessageTracing.stamp(correlationId));
             logger.info("Published order event: {}", eventType);
         } catch (Exception e) {
             logger.error("Failed to publish order event", e);
         }
     }
 
-    private void publishOrderStatusChangeEvent(Order order, Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+    /**
+     * Publishes committed status changes, numbering each within its user's status stream first so that
+     * every replica streams it under the same id.
+     */
+    private void publishOrderStatusChangeEvents(List<OrderStatusChange> changes, String correlationId) {
+        changes.forEach(paymentDeadlineService::onStatusChange);
+        long[] sequences;
         try {
-            String statusChangeMessage = objectMapper.writeValueAsString(
-                    new OrderStatusChangeMessage(order.getOrderId(), order.getUserId(),
-                            oldStatus.toString(), newStatus.toString()));
-            rabbitTemplate.convertAndSend("order.exchange", "order.status.changed", statusChangeMessage);
-            logger.info("Published order status change event for order {}", order.getOrderId());
+            sequences = orderStatusStreamService.reserveSequences(changes);
         } catch (Exception e) {
-            logger.error("Failed to publish status change event", e);
+            // The events still go out; only the status streams miss them
+            logger.error("Failed to number status changes for streaming", e);
+            sequences = null;
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            OrderStatusChange change = changes.get(i);
+            try {
+                String statusChangeMessage = objectMapper.writeValueAsString(
+                        new OrderStatusChangeMessage(change.getOrderId(), change.getUserId(),
+                                change.getOldStatus().toString(), change.getNewStatus().toString()));
+                rabbitTemplate.convertAndSend("order.exchange", "order.status.changed", statusChangeMessage,
+                        sequences != null
+                                ? MessageTracing.stamp(correlationId, sequences[i])
+                                : MessageTracing.stamp(correlationId));
+                logger.info("Published order status change event for order {}", change.getOrderId());
+            } catch (Exception e) {
+                logger.error("Failed to publish status change event", e);
+            }
+            if (sequences != null) {
+                orderStatusStreamService.publish(sequences[i], change);
+            }
         }
     }
 
@@ -230,11 +802,13 @@ public class OrderService {
         private Long productId;
         private Integer quantity;
         private String orderId;
+        private Long orderItemId;
 
-        public StockReservationMessage(Long productId, Integer quantity, String orderId) {
+        public StockReservationMessage(Long productId, Integer quantity, String orderId, Long orderItemId) {
             this.productId = productId;
             this.quantity = quantity;
             this.orderId = orderId;
+            this.orderItemId = orderItemId;
         }
 
         // Getters and setters
@@ -261,6 +835,14 @@ public class OrderService {
         public void setOrderId(String orderId) {
             this.orderId = orderId;
         }
+
+        public Long getOrderItemId() {
+            return orderItemId;
+        }
+
+        public void setOrderItemId(Long orderItemId) {
+            this.orderItemId = orderItemId;
+        }
     }
 
     public static class OrderEventMessage {
@@ -269,13 +851,16 @@ public class OrderService {
         private Long userId;
         private String status;
         private BigDecimal totalAmount;
+        private LocalDateTime orderDate;
 
-        public OrderEventMessage(String eventType, Long orderId, Long userId, String status, BigDecimal totalAmount) {
+        public OrderEventMessage(String eventType, Long orderId, Long userId, String status, BigDecimal totalAmount,
+                LocalDateTime orderDate) {
             this.eventType = eventType;
             this.orderId = orderId;
             this.userId = userId;
             this.status = status;
             this.totalAmount = totalAmount;
+            this.orderDate = orderDate;
         }
 
         // Getters and setters
@@ -318,6 +903,70 @@ public class OrderService {
         public void setTotalAmount(BigDecimal totalAmount) {
             this.totalAmount = totalAmount;
         }
+
+        public LocalDateTime getOrderDate() {
+            return orderDate;
+        }
+
+        public void setOrderDate(LocalDateTime orderDate) {
+            this.orderDate = orderDate;
+        }
+    }
+
+    public static class PaymentRefundMessage {
+        private String eventType = "order.payment.refund-required";
+        private Long orderId;
+        private Long paymentId;
+        private Long userId;
+        private BigDecimal amount;
+
+        public PaymentRefundMessage(Long orderId, Long paymentId, Long userId, BigDecimal amount) {
+            this.orderId = orderId;
+            this.paymentId = paymentId;
+            this.userId = userId;
+            this.amount = amount;
+        }
+
+        // Getters and setters
+        public String getEventType() {
+            return eventType;
+        }
+
+        public void setEventType(String eventType) {
+            this.eventType = eventType;
+        }
+
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        public Long getPaymentId() {
+            return paymentId;
+        }
+
+        public void setPaymentId(Long paymentId) {
+            this.paymentId = paymentId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
     }
 
     public static class OrderStatusChangeMessage {
@@ -0,0 +1,185 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.repository.ArchivedOrderRepository;
+import com.ecommerce.order.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory order counts per status, archived orders included. Local changes are applied after
+ * their transaction commits, changes made by other replicas arrive through the order events, and a
+ * periodic reconciliation against the database corrects any drift.
+ */
+@Component
+public class OrderStatusCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusCounters.class);
+
+    private static final int MAX_RECONCILE_ATTEMPTS = 3;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Counts the hot and archive tables in one snapshot, so an archive batch is never seen twice or missed
+    private TransactionTemplate countTemplate;
+
+    private final Map<Order.OrderStatus, LongAdder> counts = new EnumMap<>(Order.OrderStatus.class);
+
+    // Drift left uncorrected by the last reconciliation; only touched by the reconciling thread
+    private final Map<Order.OrderStatus, Long> previousDrift = new EnumMap<>(Order.OrderStatus.class);
+
+    private volatile boolean seeded;
+
+    public OrderStatusCounters() {
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            counts.put(status, new LongAdder());
+        }
+    }
+
+    public long getCount(Order.OrderStatus status) {
+        if (!seeded) {
+            return orderRepository.countByStatus(status) + archivedOrderRepository.countByStatus(status);
+        }
+        return counts.get(status).sum();
+    }
+
+    public void recordCreated(Order.OrderStatus status) {
+        afterCommit(() -> counts.get(status).increment());
+    }
+
+    public void recordTransition(Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        if (oldStatus == newStatus) {
+            return;
+        }
+        afterCommit(() -> applyTransition(oldStatus, newStatus));
+    }
+
+    // Changes made and committed by another replica
+    public void applyRemoteCreated(Order.OrderStatus status) {
+        counts.get(status).increment();
+    }
+
+    public void applyRemoteTransition(Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        if (oldStatus != newStatus) {
+            applyTransition(oldStatus, newStatus);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        countTemplate = new TransactionTemplate(transactionManager);
+        countTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        countTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+        seeded = true;
+        logger.info("Order status counters seeded: {}", snapshot());
+    }
+
+    @Scheduled(initialDelayString = "${order.status-counters.reconcile-interval-ms:300000}",
+            fixedDelayString = "${order.status-counters.reconcile-interval-ms:300000}")
+    public synchronized void reconcile() {
+        Map<Order.OrderStatus, Long> drift = null;
+        for (int attempt = 0; attempt < MAX_RECONCILE_ATTEMPTS && drift == null; attempt++) {
+            drift = measureDrift();
+        }
+        if (drift == null) {
+            logger.debug("Order status counters kept changing, reconciliation skipped");
+            return;
+        }
+
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            long current = drift.getOrDefault(status, 0L);
+            long previous = previousDrift.getOrDefault(status, 0L);
+            // Changes committed but not yet applied, locally or from another replica's events, show up
+            // as drift once; only drift seen by two reconciliations in a row is corrected
+            long correction = !seeded ? current
+                    : Long.signum(current) == Long.signum(previous) ? absMin(current, previous) : 0;
+            if (correction != 0) {
+                counts.get(status).add(correction);
+                if (seeded) {
+                    logger.warn("Corrected {} order count drift of {}", status, correction);
+                }
+            }
+            previousDrift.put(status, current - correction);
+        }
+    }
+
+    /**
+     * The difference between the database counts and the counters, or null if any counter changed
+     * while the database was being counted, as the two readings would then not match up.
+     */
+    private Map<Order.OrderStatus, Long> measureDrift() {
+        Map<Order.OrderStatus, Long> before = snapshot();
+        Map<Order.OrderStatus, Long> actual = countTemplate.execute(tx -> {
+            Map<Order.OrderStatus, Long> counted = new EnumMap<>(Order.OrderStatus.class);
+            for (Object[] row : orderRepository.countGroupedByStatus()) {
+                counted.merge((Order.OrderStatus) row[0], (Long) row[1], Long::sum);
+            }
+            for (Object[] row : archivedOrderRepository.countGroupedByStatus()) {
+                counted.merge((Order.OrderStatus) row[0], (Long) row[1], Long::sum);
+            }
+            return counted;
+        });
+        Map<Order.OrderStatus, Long> after = snapshot();
+        if (!before.equals(after)) {
+            return null;
+        }
+        Map<Order.OrderStatus, Long> drift = new EnumMap<>(Order.OrderStatus.class);
+        after.forEach((status, count) -> drift.put(status, actual.getOrDefault(status, 0L) - count));
+        return drift;
+    }
+
+    private static long absMin(long a, long b) {
+        return Math.abs(a) < Math.abs(b) ? a : b;
+    }
+
+    private Map<Order.OrderStatus, Long> snapshot() {
+        Map<Order.OrderStatus, Long> snapshot = new EnumMap<>(Order.OrderStatus.class);
+        counts.forEach((status, counter) -> snapshot.put(status, counter.sum()));
+        return snapshot;
+    }
+
+    private void applyTransition(Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        counts.get(oldStatus).decrement();
+        counts.get(newStatus).increment();
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
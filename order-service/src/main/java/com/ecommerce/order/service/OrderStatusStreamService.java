@@ -0,0 +1,409 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.OrderStatusChange;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes order status changes to users over Server-Sent Events. Emitters are served by async
+ * requests, so idle connections hold no request thread.
+ * <p>
+ * Every event carries a per-user sequence number reserved in the database, and every replica buffers
+ * recent events for all users from the RabbitMQ fan-out, so a client can resume from its Last-Event-ID
+ * on any replica. Events from different replicas can arrive out of order, so the id sent with each
+ * event is the highest sequence up to which the client has seen everything; a resume may repeat an
+ * event but never skips one still in the buffer. A sequence that never arrives, because its publish
+ * failed or its broadcast was lost, is given up on after the gap timeout or once a full buffer of
+ * later events has gone out, so the id keeps moving.
+ * <p>
+ * Sends run on a dedicated bounded pool, one drain at a time per connection, so committing threads,
+ * listeners and the heartbeat never block on a slow client. A client that falls too far behind is
+ * disconnected and resumes on reconnect.
+ */
+@Service
+public class OrderStatusStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStatusStreamService.class);
+
+    private static final String EVENT_NAME = "order-status";
+
+    private static final Object HEARTBEAT = new Object();
+
+    // Reserves a block of sequence numbers per user; rows are locked in user order so batches cannot deadlock
+    private static final String RESERVE_SEQUENCES = "INSERT INTO order_user_stream_sequences (user_id, seq) "
+            + "SELECT u.user_id, u.n FROM unnest(?::bigint[], ?::bigint[]) AS u(user_id, n) ORDER BY u.user_id "
+            + "ON CONFLICT (user_id) DO UPDATE SET seq = order_user_stream_sequences.seq + EXCLUDED.seq "
+            + "RETURNING user_id, seq";
+
+    @Value("${order.stream.max-subscribers:60000}")
+    private int maxSubscribers;
+
+    @Value("${order.stream.max-subscribers-per-user:5}")
+    private int maxSubscribersPerUser;
+
+    @Value("${order.stream.replay-size:50}")
+    private int replaySize;
+
+    @Value("${order.stream.replay-retention-ms:300000}")
+    private long replayRetentionMillis;
+
+    @Value("${order.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${order.stream.send-threads:8}")
+    private int sendThreads;
+
+    @Value("${order.stream.max-pending-per-subscriber:100}")
+    private int maxPendingPerSubscriber;
+
+    @Value("${order.stream.gap-timeout-ms:10000}")
+    private long gapTimeoutMillis;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate sequenceTemplate;
+
+    private final Map<Long, UserStream> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private ThreadPoolExecutor sendExecutor;
+
+    public OrderStatusStreamService(PlatformTransactionManager transactionManager) {
+        // Sequences are reserved once the order change has committed, so they need a transaction of their own
+        this.sequenceTemplate = new TransactionTemplate(transactionManager);
+        this.sequenceTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // At most one drain per connection is queued, so the queue holds one slot per possible subscriber
+        sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxSubscribers), runnable -> {
+                    Thread thread = new Thread(runnable, "order-stream-send-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Opens a stream for the user, replaying buffered events after lastEventId.
+     * Returns empty when this replica already holds its maximum number of streams.
+     */
+    public Optional<SseEmitter> subscribe(Long userId, Long lastEventId) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return Optional.empty();
+        }
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis));
+        UserStream stream;
+        Subscriber evicted = null;
+        while (true) {
+            stream = streams.computeIfAbsent(userId, id -> new UserStream());
+            synchronized (stream) {
+                // Lost a race with the heartbeat dropping this user's idle stream
+                if (streams.get(userId) != stream) {
+                    continue;
+                }
+                // The oldest connection gives way, usually a tab the user has already left
+                if (stream.subscribers.size() >= maxSubscribersPerUser) {
+                    evicted = stream.subscribers.pollFirst();
+                }
+                stream.subscribers.addLast(subscriber);
+                stream.touch();
+                // An id past everything buffered here, like one from before sequences were per user,
+                // starts from the newest buffered event rather than waiting for numbers never reached.
+                // One older than the buffer starts from its oldest event, as evicted ones cannot be sent
+                if (!stream.recent.isEmpty()) {
+                    long resumeAfter = lastEventId != null
+                            ? Math.min(lastEventId, stream.recent.lastKey()) : stream.recent.lastKey();
+                    resumeAfter = Math.max(resumeAfter, stream.recent.firstKey() - 1);
+                    subscriber.watermark = resumeAfter;
+                    stream.recent.tailMap(resumeAfter, false).values().forEach(subscriber::enqueue);
+                }
+                break;
+            }
+        }
+
+        UserStream registered = stream;
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> unsubscribe(registered, subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitter.complete());
+        if (evicted != null) {
+            subscribers.decrementAndGet();
+            evicted.close();
+        }
+        schedule(subscriber);
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Reserves the next per-user sequence number for each change, in list order. Call after the changes
+     * have committed; the numbers are shared by every replica through the database.
+     */
+    public long[] reserveSequences(List<OrderStatusChange> changes) {
+        if (changes.isEmpty()) {
+            return new long[0];
+        }
+        Map<Long, Long> countsByUser = new HashMap<>();
+        changes.forEach(change -> countsByUser.merge(change.getUserId(), 1L, Long::sum));
+        Long[] userIds = countsByUser.keySet().toArray(new Long[0]);
+        Long[] counts = new Long[userIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            counts[i] = countsByUser.get(userIds[i]);
+        }
+
+        // The returned value is each user's last number; the block handed out ends there
+        Map<Long, Long> nextByUser = new HashMap<>();
+        sequenceTemplate.executeWithoutResult(status -> jdbcTemplate.query(RESERVE_SEQUENCES,
+                (RowCallbackHandler) rs -> {
+                    long userId = rs.getLong("user_id");
+                    nextByUser.put(userId, rs.getLong("seq") - countsByUser.get(userId) + 1);
+                },
+                userIds, counts));
+
+        long[] sequences = new long[changes.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = nextByUser.merge(changes.get(i).getUserId(), 1L, Long::sum) - 1;
+        }
+        return sequences;
+    }
+
+    /**
+     * Buffers a committed status change for the user and queues it for the user's open streams on this
+     * replica. Called for local changes and for changes broadcast by other replicas alike.
+     */
+    public void publish(long sequence, OrderStatusChange change) {
+        Event event = new Event(sequence, change);
+        UserStream stream;
+        List<Subscriber> targets;
+        while (true) {
+            stream = streams.computeIfAbsent(change.getUserId(), id -> new UserStream());
+            synchronized (stream) {
+                if (streams.get(change.getUserId()) != stream) {
+                    continue;
+                }
+                if (stream.recent.putIfAbsent(sequence, event) != null) {
+                    return;
+                }
+                if (stream.recent.size() > replaySize) {
+                    stream.recent.pollFirstEntry();
+                }
+                stream.touch();
+                targets = new ArrayList<>(stream.subscribers);
+                break;
+            }
+        }
+        for (Subscriber subscriber : targets) {
+            subscriber.enqueue(event);
+            schedule(subscriber);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    @Scheduled(fixedDelayString = "${order.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long staleBefore = System.currentTimeMillis() - replayRetentionMillis;
+        streams.forEach((userId, stream) -> {
+            List<Subscriber> targets;
+            synchronized (stream) {
+                // Keep the replay buffer a while after the last event or disconnect so the client can resume
+                if (stream.subscribers.isEmpty() && stream.lastActivity < staleBefore) {
+                    streams.remove(userId, stream);
+                }
+                targets = new ArrayList<>(stream.subscribers);
+            }
+            for (Subscriber subscriber : targets) {
+                subscriber.enqueue(HEARTBEAT);
+                schedule(subscriber);
+            }
+        });
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.pending.isEmpty() || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sendExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+            subscriber.close();
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Object item;
+            while ((item = subscriber.pending.poll()) != null) {
+                subscriber.pendingCount.decrementAndGet();
+                if (!subscriber.send(item)) {
+                    subscriber.close();
+                    return;
+                }
+            }
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An item may have been queued after the last poll but before the flag was cleared
+        schedule(subscriber);
+    }
+
+    private void unsubscribe(UserStream stream, Subscriber subscriber) {
+        synchronized (stream) {
+            if (stream.subscribers.remove(subscriber)) {
+                subscribers.decrementAndGet();
+            }
+            stream.touch();
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        // Only touched by the drain, which runs one at a time per subscriber
+        private long watermark = -1;
+        private final TreeSet<Long> sentAhead = new TreeSet<>();
+        // When the sequence after the watermark was first found missing, 0 while there is no gap
+        private long gapSince;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void enqueue(Object item) {
+            if (closed.get()) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > maxPendingPerSubscriber) {
+                logger.debug("Dropping order status stream that fell {} events behind", maxPendingPerSubscriber);
+                close();
+                return;
+            }
+            pending.add(item);
+        }
+
+        private boolean send(Object item) {
+            try {
+                if (item == HEARTBEAT) {
+                    // Lets a gap time out even while no events arrive behind it
+                    advance(System.currentTimeMillis());
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    Event event = (Event) item;
+                    if (!markSent(event.sequence())) {
+                        return true;
+                    }
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(watermark))
+                            .name(EVENT_NAME)
+                            .data(event.change()));
+                }
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping order status stream: {}", e.getMessage());
+                return false;
+            }
+        }
+
+        // Advances the contiguous watermark; false when the event was already sent on this connection
+        private boolean markSent(long sequence) {
+            if (watermark < 0) {
+                watermark = sequence - 1;
+            }
+            if (sequence <= watermark || !sentAhead.add(sequence)) {
+                return false;
+            }
+            advance(System.currentTimeMillis());
+            return true;
+        }
+
+        // Moves the watermark over sent events, skipping a missing one once it has timed out or
+        // a full buffer of later events has piled up behind it
+        private void advance(long now) {
+            while (!sentAhead.isEmpty()) {
+                if (sentAhead.first() == watermark + 1) {
+                    watermark = sentAhead.pollFirst();
+                    gapSince = 0;
+                    continue;
+                }
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < gapTimeoutMillis && sentAhead.size() <= replaySize) {
+                    return;
+                }
+                watermark = sentAhead.pollFirst();
+                gapSince = 0;
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                pending.clear();
+                emitter.complete();
+            }
+        }
+    }
+
+    private static final class UserStream {
+        private final Deque<Subscriber> subscribers = new ArrayDeque<>();
+        private final NavigableMap<Long, Event> recent = new TreeMap<>();
+        private long lastActivity = System.currentTimeMillis();
+
+        private void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    private record Event(long sequence, OrderStatusChange change) {
+    }
+}
@@ -0,0 +1,170 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.OrderStatusChange;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.SnowflakeIdGenerator;
+import com.ecommerce.order.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels orders that are still unpaid when their payment deadline passes, releasing their stock.
+ *
+ * Every replica tracks every unpaid order. The replica that created an order (the node encoded in
+ * its id) cancels it at the deadline; the others only act after an extra grace period, covering for
+ * an owner that has gone away. Deadlines are dropped as soon as a replica sees the order paid or
+ * cancelled, and cancellation is a guarded status update, so an order that was paid or cancelled in
+ * the meantime is left alone.
+ *
+ * Orders placed before order.payment-deadline.applies-from never get a deadline: before the
+ * deadline existed nothing moved orders to PAID, so older unpaid orders are left for staff. Without
+ * that setting only orders placed since this replica started are tracked, and none are reloaded.
+ */
+@Service
+public class PaymentDeadlineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentDeadlineService.class);
+
+    // Statuses an order can still be cancelled from for non-payment
+    private static final Set<Order.OrderStatus> UNPAID_STATUSES = Order.OrderStatus.CANCELLED.allowedPredecessors();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    // Lazy to break the cycle with OrderService, which registers new orders here
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SnowflakeIdGenerator.Node snowflakeNode;
+
+    @Value("${order.payment-deadline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.payment-deadline.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${order.payment-deadline.grace:2m}")
+    private Duration grace;
+
+    @Value("${order.payment-deadline.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${order.payment-deadline.wheel-size:4096}")
+    private int wheelSize;
+
+    @Value("${order.payment-deadline.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.payment-deadline.retry-delay:1m}")
+    private Duration retryDelay;
+
+    @Value("${order.payment-deadline.applies-from:}")
+    private String appliesFromProperty;
+
+    private LocalDateTime appliesFrom;
+
+    private HashedTimingWheel<Long> wheel;
+
+    private final Map<Long, HashedTimingWheel.Timeout<Long>> deadlines = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        appliesFrom = appliesFromProperty.isBlank() ? LocalDateTime.now() : LocalDateTime.parse(appliesFromProperty);
+        wheel = new HashedTimingWheel<>("payment-deadlines", tickMillis, TimeUnit.MILLISECONDS, wheelSize,
+                this::cancelExpired);
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.close();
+    }
+
+    public void register(Long orderId, LocalDateTime orderDate) {
+        if (!enabled || orderDate.isBefore(appliesFrom)) {
+            return;
+        }
+        LocalDateTime deadline = orderDate.plus(timeout);
+        if (SnowflakeIdGenerator.nodeOf(orderId) != snowflakeNode.getNodeId()) {
+            deadline = deadline.plus(grace);
+        }
+        schedule(orderId, Duration.between(LocalDateTime.now(), deadline).toMillis());
+    }
+
+    /**
+     * Drops the order's deadline once it has left the unpaid statuses, here or on another replica.
+     */
+    public void onStatusChange(OrderStatusChange change) {
+        if (UNPAID_STATUSES.contains(change.getNewStatus())) {
+            return;
+        }
+        HashedTimingWheel.Timeout<Long> timeout = deadlines.remove(change.getOrderId());
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+    }
+
+    public int getPendingCount() {
+        return wheel.size();
+    }
+
+    // Rebuilds the wheel from the (status, order_date) index after a restart
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPendingDeadlines() {
+        if (!enabled) {
+            return;
+        }
+        if (appliesFromProperty.isBlank()) {
+            logger.warn("order.payment-deadline.applies-from is not set, not reloading payment deadlines; "
+                    + "set it to the time this feature was rolled out");
+            return;
+        }
+        List<Object[]> pending = orderRepository.findOrderDatesByStatusInAndOrderDateFrom(UNPAID_STATUSES, appliesFrom);
+        for (Object[] row : pending) {
+            register((Long) row[0], (LocalDateTime) row[1]);
+        }
+        logger.info("Registered payment deadlines for {} unpaid orders", pending.size());
+    }
+
+    private void schedule(Long orderId, long delayMillis) {
+        HashedTimingWheel.Timeout<Long> previous =
+                deadlines.put(orderId, wheel.schedule(orderId, delayMillis, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    private void cancelExpired(List<Long> orderIds) {
+        orderIds.forEach(deadlines::remove);
+        for (int from = 0; from < orderIds.size(); from += batchSize) {
+            List<Long> batch = orderIds.subList(from, Math.min(from + batchSize, orderIds.size()));
+            try {
+                int cancelled = orderService.cancelUnpaidOrders(batch);
+                if (cancelled > 0) {
+                    logger.info("Cancelled {} orders past their payment deadline", cancelled);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to cancel {} orders past their payment deadline, retrying in {}",
+                        batch.size(), retryDelay, e);
+                batch.forEach(orderId -> schedule(orderId, retryDelay.toMillis()));
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.config.RabbitMQConfig;
+import com.ecommerce.order.dto.OrderItemDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local copy of product price and stock, kept current by product change events, so new orders can be
+ * checked at intake without calling product-service.
+ *
+ * The copy is loaded with a full snapshot on startup, and reloaded whenever a producer's event
+ * sequence shows a missed event. Until a snapshot has completed, orders are not checked at all; stock
+ * is still reserved by product-service as before.
+ */
+@Component
+public class ProductSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSnapshot.class);
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("productSnapshotQueue")
+    private Queue productSnapshotQueue;
+
+    @Value("${order.product-snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.product-snapshot.resync-timeout-ms:30000}")
+    private long resyncTimeoutMillis;
+
+    private final Map<Long, ProductState> products = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastSequenceByInstance = new ConcurrentHashMap<>();
+
+    // Resync state; only touched by the single snapshot queue consumer, apart from the request itself
+    private final Set<Long> seenInResync = new HashSet<>();
+    private volatile String resyncRequestId;
+    private volatile long resyncRequestedAt;
+    private volatile boolean ready;
+
+    /**
+     * Rejects orders with a price that no longer matches, or for products that are deleted or short of
+     * stock. Products the snapshot does not know are let through.
+     */
+    public void validate(List<OrderItemDto> items) {
+        if (!enabled || !ready) {
+            return;
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItemDto item : items) {
+            ProductState product = products.get(item.getProductId());
+            if (product == null) {
+                continue;
+            }
+            if (product.deleted()) {
+                throw new OrderRejectedException("Product " + item.getProductId() + " is no longer available");
+            }
+            if (item.getPrice().compareTo(product.price()) != 0) {
+                throw new OrderRejectedException("Price of product " + item.getProductId() + " has changed to "
+                        + product.price());
+            }
+            int quantity = quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            if (quantity > product.stock()) {
+                throw new OrderRejectedException("Insufficient stock for product " + item.getProductId());
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    public void applyChange(Long productId, ProductState state, String instanceId, long sequence) {
+        apply(productId, state);
+
+        Long last = lastSequenceByInstance.put(instanceId, sequence);
+        if (last != null && sequence != last + 1) {
+            requestResync("missed product events from " + instanceId + " (" + last + " -> " + sequence + ")");
+        }
+    }
+
+    public void applySnapshotPage(String requestId, Map<Long, ProductState> page, boolean last) {
+        if (!requestId.equals(resyncRequestId)) {
+            return;
+        }
+        page.forEach(this::apply);
+        seenInResync.addAll(page.keySet());
+
+        if (last) {
+            // Products missing from the snapshot were deleted, unless an event about them arrived since
+            long requestedAt = resyncRequestedAt;
+            products.entrySet().removeIf(entry -> !seenInResync.contains(entry.getKey())
+                    && entry.getValue().updatedAt() < requestedAt);
+            seenInResync.clear();
+            resyncRequestId = null;
+            ready = true;
+            logger.info("Product snapshot loaded with {} products", products.size());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (enabled) {
+            requestResync("startup");
+        }
+    }
+
+    // Retries a snapshot that never completed, for example while product-service was down
+    @Scheduled(fixedDelayString = "${order.product-snapshot.check-interval-ms:60000}")
+    public void checkResync() {
+        if (enabled && !ready && System.currentTimeMillis() - resyncRequestedAt > resyncTimeoutMillis) {
+            requestResync("previous snapshot did not complete");
+        }
+    }
+
+    private synchronized void requestResync(String reason) {
+        String requestId = UUID.randomUUID().toString();
+        ready = false;
+        resyncRequestId = requestId;
+        resyncRequestedAt = System.currentTimeMillis();
+        try {
+            Map<String, String> request = Map.of("requestId", requestId, "replyTo", productSnapshotQueue.getName());
+            rabbitTemplate.convertAndSend(RabbitMQConfig.PRODUCT_EXCHANGE,
+                    RabbitMQConfig.PRODUCT_SNAPSHOT_REQUEST_ROUTING_KEY, objectMapper.writeValueAsString(request));
+            logger.info("Requested product snapshot {}: {}", requestId, reason);
+        } catch (Exception e) {
+            logger.error("Failed to request product snapshot", e);
+        }
+    }
+
+    // The higher product version wins, so a late event or a page read before a change cannot roll it back
+    private void apply(Long productId, ProductState state) {
+        products.merge(productId, state, (current, update) -> update.version() >= current.version() ? update : current);
+    }
+
+    /**
+     * A product's price and stock as of the given version, which product-service bumps on every committed
+     * change. updatedAt is only used to tell a deletion missing from a snapshot from a product created since.
+     */
+    public record ProductState(BigDecimal price, int stock, boolean deleted, long updatedAt, long version) {
+    }
+}
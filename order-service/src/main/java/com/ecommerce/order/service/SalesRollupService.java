@@ -0,0 +1,183 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.SalesRollupDto;
+import com.ecommerce.order.entity.Order;
+import com.ecommerce.order.entity.SalesRollup;
+import com.ecommerce.order.repository.SalesRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains hourly and daily sales rollups incrementally, so analytics reads never touch the orders
+ * table. Order changes append their deltas in their own transaction, and a periodic flush folds the
+ * committed deltas into the rollups, so reads lag order changes by up to one flush interval.
+ *
+ * Flushes and rebuilds take a transaction-scoped advisory lock, so only one replica runs either at a time.
+ */
+@Service
+@Transactional
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final int MAX_REBUILD_ATTEMPTS = 5;
+    private static final long REBUILD_RETRY_DELAY_MS = 1000;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private TransactionTemplate rebuildTemplate;
+
+    @PostConstruct
+    public void init() {
+        rebuildTemplate = new TransactionTemplate(transactionManager);
+        rebuildTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    public void recordCreated(Collection<Long> orderIds, Order.OrderStatus status) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        // The delta insert reads orders and items with SQL, so pending inserts must be written first
+        entityManager.flush();
+        salesRollupRepository.appendDelta(orderIds, status.name(), 1);
+    }
+
+    public void recordTransition(Collection<Long> orderIds, Order.OrderStatus oldStatus, Order.OrderStatus newStatus) {
+        if (orderIds.isEmpty() || oldStatus == newStatus) {
+            return;
+        }
+        entityManager.flush();
+        salesRollupRepository.appendDelta(orderIds, oldStatus.name(), -1);
+        salesRollupRepository.appendDelta(orderIds, newStatus.name(), 1);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesRollupDto> getRollups(SalesRollup.Granularity granularity, LocalDateTime from, LocalDateTime to,
+            Long productId, Order.OrderStatus status) {
+        long product = productId != null ? productId : SalesRollup.ALL_PRODUCTS;
+        List<SalesRollup> rollups = status != null
+                ? salesRollupRepository.findRollupsByStatus(granularity, product, status, from, to)
+                : salesRollupRepository.findRollups(granularity, product, from, to);
+        return rollups.stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${order.sales-rollup.flush-interval-ms:5000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flush() {
+        if (rebuilding.get()) {
+            return;
+        }
+        Integer flushed = transactionTemplate.execute(tx ->
+                salesRollupRepository.tryLockRollups() ? salesRollupRepository.flushDeltas() : 0);
+        if (flushed != null && flushed > 0) {
+            logger.debug("Flushed sales rollup deltas into {} rollup rows", flushed);
+        }
+    }
+
+    /**
+     * Recomputes every rollup from the order tables. Returns false if a rebuild is already running.
+     *
+     * Runs in one repeatable-read snapshot without blocking order writes: deltas committed before the
+     * snapshot are already in the order tables it reads and are dropped, while those committed after
+     * it are left for the next flush.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    Integer rows = rebuildTemplate.execute(tx -> {
+                        if (!salesRollupRepository.tryLockRollups()) {
+                            return null;
+                        }
+                        salesRollupRepository.deleteAllDeltas();
+                        salesRollupRepository.deleteAllRollups();
+                        return salesRollupRepository.rebuildAll();
+                    });
+                    if (rows != null) {
+                        logger.info("Rebuilt {} sales rollup rows in {} ms", rows,
+                                System.currentTimeMillis() - start);
+                        return true;
+                    }
+                } catch (ConcurrencyFailureException e) {
+                    // A flush committed between the snapshot and taking the lock
+                    if (attempt >= MAX_REBUILD_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+                if (attempt >= MAX_REBUILD_ATTEMPTS) {
+                    return false;
+                }
+                sleep(REBUILD_RETRY_DELAY_MS);
+            }
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void backfillIfEmpty() {
+        if (salesRollupRepository.count() == 0) {
+            logger.info("Sales rollups are empty, backfilling from order history");
+            rebuild();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SalesRollupDto convertToDto(SalesRollup rollup) {
+        return new SalesRollupDto(
+                rollup.getId().getGranularity(),
+                rollup.getId().getBucketStart(),
+                rollup.getId().getStatus(),
+                rollup.getId().getProductId(),
+                rollup.getOrderCount(),
+                rollup.getRevenue(),
+                rollup.getUnits());
+    }
+}
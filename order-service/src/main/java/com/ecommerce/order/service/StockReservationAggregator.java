@@ -0,0 +1,187 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.StockReservationReply;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the per-line stock reservation replies of orders created on this replica. Once every line
+ * has answered, the order is confirmed, or, if any line failed, cancelled with only the lines that were
+ * reserved released. Orders whose replies do not all arrive in time are treated as failed; a reservation
+ * that succeeds after that is released when its reply turns up.
+ *
+ * Pending orders and the reply queue belong to the replica that created the order, so replies for a
+ * replica that goes away are lost and its orders stay CREATED until the payment deadline. Requests
+ * expire in the broker after the reservation timeout, so stock is not reserved for them much later; a
+ * successful reply this replica has no record of is checked against the order as stored.
+ */
+@Service
+public class StockReservationAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationAggregator.class);
+
+    // Lazy to break the cycle with OrderService, which registers new orders here
+    @Lazy
+    @Autowired
+    private OrderService orderService;
+
+    @Value("${order.stock-reservation.timeout:60s}")
+    private Duration timeout;
+
+    @Value("${order.stock-reservation.late-reply-window:10m}")
+    private Duration lateReplyWindow;
+
+    @Value("${order.stock-reservation.tick-ms:100}")
+    private long tickMillis;
+
+    @Value("${order.stock-reservation.wheel-size:1024}")
+    private int wheelSize;
+
+    private final Map<Long, PendingReservation> pending = new ConcurrentHashMap<>();
+
+    // Lines of orders cancelled on timeout that never answered, by order id
+    private final Map<Long, Set<Long>> awaitingLateReplies = new ConcurrentHashMap<>();
+
+    private HashedTimingWheel<Expiry> wheel;
+
+    @PostConstruct
+    public void start() {
+        wheel = new HashedTimingWheel<>("stock-reservation-timeouts", tickMillis, TimeUnit.MILLISECONDS, wheelSize,
+                expired -> expired.forEach(this::expire));
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.close();
+    }
+
+    /**
+     * Starts waiting for the replies of the given order lines. Must be called before the reservations are sent.
+     */
+    public void register(Long orderId, Collection<Long> orderItemIds) {
+        pending.put(orderId, new PendingReservation(orderItemIds));
+        wheel.schedule(new Expiry(orderId, false), timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public void onReply(StockReservationReply reply) {
+        Long orderId = Long.valueOf(reply.getOrderId());
+        PendingReservation reservation = pending.get(orderId);
+        if (reservation == null) {
+            onLateReply(orderId, reply);
+            return;
+        }
+
+        synchronized (reservation) {
+            // Redelivered replies find their line already answered
+            if (reservation.done || !reservation.outstanding.remove(reply.getOrderItemId())) {
+                return;
+            }
+            if (reply.isSuccess()) {
+                reservation.reserved.add(reply);
+            } else {
+                reservation.failed.add(reply.getOrderItemId());
+            }
+            if (!reservation.outstanding.isEmpty()) {
+                return;
+            }
+            reservation.done = true;
+        }
+        pending.remove(orderId, reservation);
+
+        if (!reservation.failed.isEmpty()) {
+            compensate(orderId, reservation.reserved, reservation.failed, Set.of());
+        } else {
+            orderService.confirmReservedOrder(orderId);
+        }
+    }
+
+    private void expire(Expiry expiry) {
+        if (expiry.lateReplyWindow()) {
+            awaitingLateReplies.remove(expiry.orderId());
+            return;
+        }
+        PendingReservation reservation = pending.get(expiry.orderId());
+        if (reservation == null) {
+            return;
+        }
+        Set<Long> unanswered;
+        synchronized (reservation) {
+            if (reservation.done) {
+                return;
+            }
+            reservation.done = true;
+            unanswered = new HashSet<>(reservation.outstanding);
+        }
+        pending.remove(expiry.orderId(), reservation);
+        logger.warn("Stock reservation for order {} timed out with {} lines unanswered",
+                expiry.orderId(), unanswered.size());
+        compensate(expiry.orderId(), reservation.reserved, reservation.failed, unanswered);
+    }
+
+    private void compensate(Long orderId, List<StockReservationReply> reserved, Set<Long> failed,
+            Set<Long> unanswered) {
+        // Registered before cancelling so a reply racing the cancellation is still caught. Kept even if the
+        // order cannot be cancelled, so a line reserved late on a paid order counts as reserved again.
+        if (!unanswered.isEmpty()) {
+            Set<Long> awaiting = ConcurrentHashMap.newKeySet();
+            awaiting.addAll(unanswered);
+            awaitingLateReplies.put(orderId, awaiting);
+            wheel.schedule(new Expiry(orderId, true), lateReplyWindow.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        Set<Long> unreserved = new HashSet<>(failed);
+        unreserved.addAll(unanswered);
+        try {
+            orderService.cancelAfterFailedReservation(orderId, reserved, unreserved);
+        } catch (Exception e) {
+            awaitingLateReplies.remove(orderId);
+            logger.error("Failed to compensate stock reservation for order {}", orderId, e);
+        }
+    }
+
+    private void onLateReply(Long orderId, StockReservationReply reply) {
+        Set<Long> awaiting = awaitingLateReplies.get(orderId);
+        if (awaiting != null) {
+            if (awaiting.remove(reply.getOrderItemId()) && reply.isSuccess()) {
+                orderService.applyLateReservation(orderId, reply);
+            }
+            return;
+        }
+        if (reply.isSuccess()) {
+            orderService.applyUnclaimedReservation(orderId, reply);
+        }
+    }
+
+    private static final class PendingReservation {
+        private final Set<Long> outstanding;
+        private final List<StockReservationReply> reserved = new ArrayList<>();
+        private final Set<Long> failed = new HashSet<>();
+        private boolean done;
+
+        private PendingReservation(Collection<Long> orderItemIds) {
+            this.outstanding = new HashSet<>(orderItemIds);
+        }
+    }
+
+    private record Expiry(Long orderId, boolean lateReplyWindow) {
+    }
+}
@@ -65,6 +65,17 @@ namespace PaymentService.Services
                         UserId = payment.UserId
                     });
                 }
+                else
+                {
+                    await _rabbitMQService.PublishOrderEventAsync("order.payment.failed", new
+                    {
+                        OrderId = payment.OrderId,
+                        PaymentId = payment.PaymentId,
+                        Amount = payment.Amount,
+                        UserId = payment.UserId,
+                        Reason = payment.FailureReason
+                    });
+                }
 
                 _logger.LogInformation("Payment {PaymentId} processed with status {Status}",
                     payment.PaymentId, payment.Status);
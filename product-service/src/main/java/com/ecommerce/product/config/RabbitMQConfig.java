@@ -1,10 +1,13 @@
 package com.ecommerce.product.config;
 
+import com.ecommerce.common.messaging.MessageLatencyRecorder;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -17,10 +20,13 @@ public class RabbitMQConfig {
     // Queues
     public static final String STOCK_RESERVE_QUEUE = "product.stock.reserve";
     public static final String STOCK_RELEASE_QUEUE = "product.stock.release";
+    public static final String PRODUCT_SNAPSHOT_REQUEST_QUEUE = "product.snapshot.request";
 
     // Routing Keys
     public static final String STOCK_RESERVE_ROUTING_KEY = "product.stock.reserve";
     public static final String STOCK_RELEASE_ROUTING_KEY = "product.stock.release";
+    public static final String PRODUCT_CHANGED_ROUTING_KEY = "product.changed";
+    public static final String PRODUCT_SNAPSHOT_REQUEST_ROUTING_KEY = "product.snapshot.request";
 
     @Bean
     public DirectExchange productExchange() {
@@ -37,6 +43,11 @@ public class RabbitMQConfig {
         return QueueBuilder.durable(STOCK_RELEASE_QUEUE).build();
     }
 
+    @Bean
+    public Queue productSnapshotRequestQueue() {
+        return QueueBuilder.durable(PRODUCT_SNAPSHOT_REQUEST_QUEUE).build();
+    }
+
     @Bean
     public Binding stockReserveBinding() {
         return BindingBuilder
@@ -53,6 +64,14 @@ public class RabbitMQConfig {
                 .with(STOCK_RELEASE_ROUTING_KEY);
     }
 
+    @Bean
+    public Binding productSnapshotRequestBinding() {
+        return BindingBuilder
+                .bind(productSnapshotRequestQueue())
+                .to(productExchange())
+                .with(PRODUCT_SNAPSHOT_REQUEST_ROUTING_KEY);
+    }
+
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -64,6 +83,10 @@ public class RabbitMQConfig {
         template.setMessageConverter(messageConverter());
         return template;
     }
-}
-
 
+    @Bean
+    public MessageLatencyRecorder messageLatencyRecorder(MeterRegistry meterRegistry,
+            @Value("${messaging.latency.slowest-limit:10}") int slowestLimit) {
+        return new MessageLatencyRecorder(meterRegistry, slowestLimit);
+    }
+}
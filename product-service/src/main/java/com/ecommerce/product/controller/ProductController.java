@@ -14,6 +14,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/products")
@@ -33,6 +34,21 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping(params = "fields")
+    @Operation(summary = "Get products with selected fields",
+            description = "Retrieve a page of products with only the comma-separated fields requested "
+                    + "(productId, name, description, price, stock, imageUrl, category)")
+    public ResponseEntity<Page<Map<String, Object>>> getAllProductFields(
+            @RequestParam String fields,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(productService.getAllProducts(fields, PageRequest.of(page, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/all")
     @Operation(summary = "Get all products without pagination", description = "Retrieve all products as a list")
     public ResponseEntity<List<ProductDto>> getAllProductsList() {
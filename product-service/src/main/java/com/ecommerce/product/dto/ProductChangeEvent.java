@@ -0,0 +1,91 @@
+package com.ecommerce.product.dto;
+
+import java.math.BigDecimal;
+
+public class ProductChangeEvent {
+    private Long productId;
+    private BigDecimal price;
+    private Integer stock;
+    private boolean deleted;
+    private long updatedAt;
+    private String instanceId;
+    private long sequence;
+    private long version;
+
+    public ProductChangeEvent() {
+    }
+
+    public ProductChangeEvent(Long productId, BigDecimal price, Integer stock, boolean deleted, long updatedAt,
+            long version) {
+        this.productId = productId;
+        this.price = price;
+        this.stock = stock;
+        this.deleted = deleted;
+        this.updatedAt = updatedAt;
+        this.version = version;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
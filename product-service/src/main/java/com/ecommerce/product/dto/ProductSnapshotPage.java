@@ -0,0 +1,52 @@
+package com.ecommerce.product.dto;
+
+import java.util.List;
+
+public class ProductSnapshotPage {
+    private String requestId;
+    private int page;
+    private boolean last;
+    private List<ProductChangeEvent> products;
+
+    public ProductSnapshotPage() {
+    }
+
+    public ProductSnapshotPage(String requestId, int page, boolean last, List<ProductChangeEvent> products) {
+        this.requestId = requestId;
+        this.page = page;
+        this.last = last;
+        this.products = products;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+
+    public void setLast(boolean last) {
+        this.last = last;
+    }
+
+    public List<ProductChangeEvent> getProducts() {
+        return products;
+    }
+
+    public void setProducts(List<ProductChangeEvent> products) {
+        this.products = products;
+    }
+}
@@ -4,6 +4,7 @@ public class StockReservationRequest {
     private Long productId;
     private Integer quantity;
     private String orderId;
+    private Long orderItemId;
 
     public StockReservationRequest() {
     }
@@ -37,6 +38,12 @@ public class StockReservationRequest {
     public void setOrderId(String orderId) {
         this.orderId = orderId;
     }
-}
 
+    public Long getOrderItemId() {
+        return orderItemId;
+    }
 
+    public void setOrderItemId(Long orderItemId) {
+        this.orderItemId = orderItemId;
+    }
+}
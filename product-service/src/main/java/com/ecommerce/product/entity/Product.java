@@ -36,6 +36,11 @@ public class Product {
 
     private String category;
 
+    // Bumped by every committed change; changes are written under a row lock, so it only ever grows
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    private Long version = 0L;
+
     public Product() {
     }
 
@@ -102,6 +107,8 @@ public class Product {
     public void setCategory(String category) {
         this.category = category;
     }
-}
-
 
+    public Long getVersion() {
+        return version;
+    }
+}
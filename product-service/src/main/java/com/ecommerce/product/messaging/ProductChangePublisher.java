@@ -0,0 +1,76 @@
+package com.ecommerce.product.messaging;
+
+import com.ecommerce.product.config.RabbitMQConfig;
+import com.ecommerce.product.dto.ProductChangeEvent;
+import com.ecommerce.product.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the committed price and stock of changed products, so other services can keep a local
+ * copy. Each instance numbers its events, letting consumers detect a missed event and resync, and
+ * every event carries the product's version, which consumers use to keep the newest state.
+ */
+@Component
+public class ProductChangePublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductChangePublisher.class);
+
+    public static final String INSTANCE_ID = UUID.randomUUID().toString();
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private long sequence;
+
+    public void publishChanged(Product product) {
+        // Built once committed, when the entity carries the version the change was written with
+        afterCommit(() -> new ProductChangeEvent(product.getProductId(), product.getPrice(), product.getStock(),
+                false, System.currentTimeMillis(), product.getVersion()));
+    }
+
+    // Deleting removes the row, so the tombstone takes the version a further change would have had
+    public void publishDeleted(Product product) {
+        long version = product.getVersion() + 1;
+        afterCommit(() -> new ProductChangeEvent(product.getProductId(), null, 0, true, System.currentTimeMillis(),
+                version));
+    }
+
+    private void afterCommit(Supplier<ProductChangeEvent> event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event.get());
+                }
+            });
+        } else {
+            publish(event.get());
+        }
+    }
+
+    // Numbering and sending under one lock keeps the broker order equal to the sequence order
+    private synchronized void publish(ProductChangeEvent event) {
+        event.setInstanceId(INSTANCE_ID);
+        event.setSequence(++sequence);
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.PRODUCT_EXCHANGE, RabbitMQConfig.PRODUCT_CHANGED_ROUTING_KEY,
+                    objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // Consumers see the skipped sequence number and resync
+            logger.error("Failed to publish change of product {}", event.getProductId(), e);
+        }
+    }
+}
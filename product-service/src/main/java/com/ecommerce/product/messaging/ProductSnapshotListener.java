@@ -0,0 +1,72 @@
+package com.ecommerce.product.messaging;
+
+import com.ecommerce.product.config.RabbitMQConfig;
+import com.ecommerce.product.dto.ProductChangeEvent;
+import com.ecommerce.product.dto.ProductSnapshotPage;
+import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Answers snapshot requests from services that keep a local copy of product price and stock,
+ * sending every product in pages to the queue named in the request.
+ */
+@Component
+public class ProductSnapshotListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSnapshotListener.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${product.snapshot.page-size:500}")
+    private int pageSize;
+
+    @RabbitListener(queues = RabbitMQConfig.PRODUCT_SNAPSHOT_REQUEST_QUEUE)
+    public void handleSnapshotRequest(String message) {
+        try {
+            JsonNode request = objectMapper.readTree(message);
+            String requestId = request.path("requestId").asText();
+            String replyTo = request.path("replyTo").asText();
+
+            int pageNumber = 0;
+            Page<Product> page;
+            do {
+                page = productRepository.findAll(PageRequest.of(pageNumber, pageSize, Sort.by("productId")));
+                long readAt = System.currentTimeMillis();
+                List<ProductChangeEvent> products = page.getContent().stream()
+                        .map(product -> new ProductChangeEvent(product.getProductId(), product.getPrice(),
+                                product.getStock(), false, readAt, product.getVersion()))
+                        .collect(Collectors.toList());
+                // Replies go straight to the requester's queue through the default exchange
+                rabbitTemplate.convertAndSend("", replyTo, objectMapper.writeValueAsString(
+                        new ProductSnapshotPage(requestId, pageNumber, page.isLast(), products)));
+                pageNumber++;
+            } while (page.hasNext());
+
+            logger.info("Sent product snapshot {} in {} pages to {}", requestId, pageNumber, replyTo);
+        } catch (Exception e) {
+            logger.error("Error answering product snapshot request: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.ecommerce.product.messaging;
 
+import com.ecommerce.common.messaging.MessageLatencyRecorder;
+import com.ecommerce.product.dto.StockReservationReply;
 import com.ecommerce.product.dto.StockReservationRequest;
 import com.ecommerce.product.service.ProductService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -14,34 +19,82 @@ public class StockEventListener {
 
     private static final Logger logger = LoggerFactory.getLogger(StockEventListener.class);
 
+    private static final String STOCK_RESERVE_QUEUE = "product.stock.reserve";
+    private static final String STOCK_RELEASE_QUEUE = "product.stock.release";
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    @RabbitListener(queues = "product.stock.reserve")
-    public void handleStockReservation(String message) {
+    @Autowired
+    private MessageLatencyRecorder latencyRecorder;
+
+    @RabbitListener(queues = STOCK_RESERVE_QUEUE)
+    public void handleStockReservation(String message,
+            @Header(name = AmqpHeaders.CORRELATION_ID, required = false) String correlationId,
+            @Header(name = MessageLatencyRecorder.PUBLISHED_AT_HEADER, required = false) Long publishedAt,
+            @Header(name = AmqpHeaders.REPLY_TO, required = false) String replyTo) {
+        long receivedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String outcome = "error";
+        StockReservationRequest request = null;
+        boolean success = false;
         try {
             logger.info("Received stock reservation request: {}", message);
-            StockReservationRequest request = objectMapper.readValue(message, StockReservationRequest.class);
+            request = objectMapper.readValue(message, StockReservationRequest.class);
 
-            boolean success = productService.reserveStock(request.getProductId(), request.getQuantity());
+            success = productService.reserveStock(request.getProductId(), request.getQuantity());
 
             if (success) {
+                outcome = "success";
                 logger.info("Stock reserved successfully for product {} quantity {}",
                         request.getProductId(), request.getQuantity());
             } else {
+                outcome = "rejected";
                 logger.warn("Failed to reserve stock for product {} quantity {}",
                         request.getProductId(), request.getQuantity());
             }
         } catch (Exception e) {
             logger.error("Error processing stock reservation: {}", e.getMessage(), e);
+        } finally {
+            latencyRecorder.record(STOCK_RESERVE_QUEUE, correlationId, publishedAt, receivedAt,
+                    System.nanoTime() - start, outcome);
+        }
+
+        if (replyTo != null && request != null) {
+            sendReservationReply(replyTo, correlationId, request, success);
         }
     }
 
-    @RabbitListener(queues = "product.stock.release")
-    public void handleStockRelease(String message) {
+    // Tells the order's replica how this line went, so it can confirm or compensate the order
+    private void sendReservationReply(String replyTo, String correlationId, StockReservationRequest request,
+            boolean success) {
+        try {
+            String reply = objectMapper.writeValueAsString(new StockReservationReply(request.getOrderId(),
+                    request.getOrderItemId(), request.getProductId(), request.getQuantity(), success));
+            rabbitTemplate.convertAndSend("", replyTo, reply, replyMessage -> {
+                replyMessage.getMessageProperties().setCorrelationId(correlationId);
+                replyMessage.getMessageProperties().setHeader(MessageLatencyRecorder.PUBLISHED_AT_HEADER,
+                        System.currentTimeMillis());
+                return replyMessage;
+            });
+        } catch (Exception e) {
+            logger.error("Failed to send stock reservation reply for order {}", request.getOrderId(), e);
+        }
+    }
+
+    @RabbitListener(queues = STOCK_RELEASE_QUEUE)
+    public void handleStockRelease(String message,
+            @Header(name = AmqpHeaders.CORRELATION_ID, required = false) String correlationId,
+            @Header(name = MessageLatencyRecorder.PUBLISHED_AT_HEADER, required = false) Long publishedAt) {
+        long receivedAt = System.currentTimeMillis();
+        long start = System.nanoTime();
+        String outcome = "error";
         try {
             logger.info("Received stock release request: {}", message);
             StockReservationRequest request = objectMapper.readValue(message, StockReservationRequest.class);
@@ -49,16 +102,19 @@ public class StockEventListener {
             boolean success = productService.releaseStock(request.getProductId(), request.getQuantity());
 
             if (success) {
+                outcome = "success";
                 logger.info("Stock released successfully for product {} quantity {}",
                         request.getProductId(), request.getQuantity());
             } else {
+                outcome = "rejected";
                 logger.warn("Failed to release stock for product {} quantity {}",
                         request.getProductId(), request.getQuantity());
             }
         } catch (Exception e) {
             logger.error("Error processing stock release: {}", e.getMessage(), e);
+        } finally {
+            latencyRecorder.record(STOCK_RELEASE_QUEUE, correlationId, publishedAt, receivedAt,
+                    System.nanoTime() - start, outcome);
         }
     }
 }
-
-
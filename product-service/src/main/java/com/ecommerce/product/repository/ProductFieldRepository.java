@@ -0,0 +1,15 @@
+package com.ecommerce.product.repository;
+
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductFieldRepository {
+
+    /**
+     * Returns a page of products ordered by id, selecting only the given entity attributes. Each row
+     * maps attribute name to value, in the order the attributes were given.
+     */
+    List<Map<String, Object>> findFields(List<String> fields, Pageable pageable);
+}
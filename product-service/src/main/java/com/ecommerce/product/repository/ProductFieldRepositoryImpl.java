@@ -0,0 +1,49 @@
+package com.ecommerce.product.repository;
+
+import com.ecommerce.product.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Pageable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ProductFieldRepositoryImpl implements ProductFieldRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findFields(List<String> fields, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> product = query.from(Product.class);
+
+        List<Selection<?>> selections = fields.stream()
+                .map(field -> product.get(field).alias(field))
+                .collect(Collectors.toList());
+        query.multiselect(selections)
+                .orderBy(cb.asc(product.get("productId")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList()
+                .stream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (String field : fields) {
+                        row.put(field, tuple.get(field));
+                    }
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -2,24 +2,37 @@ package com.ecommerce.product.service;
 
 import com.ecommerce.product.dto.ProductDto;
 import com.ecommerce.product.entity.Product;
+import com.ecommerce.product.messaging.ProductChangePublisher;
 import com.ecommerce.product.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProductService {
 
+    // Attributes callers may pick with ?fields=, in response order; the id is always included
+    private static final List<String> SELECTABLE_FIELDS =
+            List.of("productId", "name", "description", "price", "stock", "imageUrl", "category");
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductChangePublisher productChangePublisher;
+
     public List<ProductDto> getAllProducts() {
         return productRepository.findAll().stream()
                 .map(this::convertToDto)
@@ -31,6 +44,37 @@ public class ProductService {
                 .map(this::convertToDto);
     }
 
+    /**
+     * Returns a page of products with only the requested fields, selected in the query itself.
+     *
+     * @throws IllegalArgumentException if a requested field is not selectable
+     */
+    public Page<Map<String, Object>> getAllProducts(String fields, Pageable pageable) {
+        List<String> selected = selectFields(parseFields(fields), SELECTABLE_FIELDS, "productId", "product");
+        return PageableExecutionUtils.getPage(productRepository.findFields(selected, pageable), pageable,
+                productRepository::count);
+    }
+
+    private static Set<String> parseFields(String fields) {
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    // Keeps the selectable order of the fields and always includes the id
+    private static List<String> selectFields(Set<String> requested, List<String> selectable, String idField,
+            String kind) {
+        for (String field : requested) {
+            if (!selectable.contains(field)) {
+                throw new IllegalArgumentException("Unknown " + kind + " field: " + field);
+            }
+        }
+        return selectable.stream()
+                .filter(field -> field.equals(idField) || requested.contains(field))
+                .collect(Collectors.toList());
+    }
+
     public Optional<ProductDto> getProductById(Long id) {
         return productRepository.findById(id)
                 .map(this::convertToDto);
@@ -61,11 +105,12 @@ public class ProductService {
     public ProductDto createProduct(ProductDto productDto) {
         Product product = convertToEntity(productDto);
         Product savedProduct = productRepository.save(product);
+        productChangePublisher.publishChanged(savedProduct);
         return convertToDto(savedProduct);
     }
 
     public ProductDto updateProduct(Long id, ProductDto productDto) {
-        return productRepository.findById(id)
+        return productRepository.findByIdForUpdate(id)
                 .map(product -> {
                     product.setName(productDto.getName());
                     product.setDescription(productDto.getDescription());
@@ -73,25 +118,30 @@ public class ProductService {
                     product.setStock(productDto.getStock());
                     product.setImageUrl(productDto.getImageUrl());
                     product.setCategory(productDto.getCategory());
-                    return convertToDto(productRepository.save(product));
+                    Product savedProduct = productRepository.save(product);
+                    productChangePublisher.publishChanged(savedProduct);
+                    return convertToDto(savedProduct);
                 })
                 .orElse(null);
     }
 
     public boolean deleteProduct(Long id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
-            return true;
-        }
-        return false;
+        return productRepository.findByIdForUpdate(id)
+                .map(product -> {
+                    productRepository.delete(product);
+                    productChangePublisher.publishDeleted(product);
+                    return true;
+                })
+                .orElse(false);
     }
 
     public boolean reserveStock(Long productId, Integer quantity) {
-        return productRepository.findById(productId)
+        return productRepository.findByIdForUpdate(productId)
                 .map(product -> {
                     if (product.getStock() >= quantity) {
                         product.setStock(product.getStock() - quantity);
                         productRepository.save(product);
+                        productChangePublisher.publishChanged(product);
                         return true;
                     }
                     return false;
@@ -100,10 +150,11 @@ public class ProductService {
     }
 
     public boolean releaseStock(Long productId, Integer quantity) {
-        return productRepository.findById(productId)
+        return productRepository.findByIdForUpdate(productId)
                 .map(product -> {
                     product.setStock(product.getStock() + quantity);
                     productRepository.save(product);
+                    productChangePublisher.publishChanged(product);
                     return true;
                 })
                 .orElse(false);